@@ -0,0 +1,105 @@
+package sortcomparisons.jmh;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import sortcomparisons.ArrayGenerator;
+import sortcomparisons.Distribution;
+
+/**
+ * Companion to SortBenchmark for small arrays, which is where InsertionSort
+ * and the inputs that drive the last-element pivots quadratic are measured.
+ * A single sort of a hundred elements takes about a microsecond, less than
+ * JMH's per-invocation setup would distort, so each invocation instead sorts
+ * a batch of BATCH fresh copies, prepared before every iteration, and reports
+ * the time per sort. Each iteration is a single invocation, since the copies
+ * are sorted once it has run.
+ *
+ * @author Alex Laird
+ * @version 1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 20)
+@Measurement(iterations = 20)
+@Fork(1)
+public class SmallSortBenchmark
+{
+    // the number of arrays sorted by each invocation
+    private static final int BATCH = 100;
+
+    @Param({"100", "1000"})
+    public int size;
+
+    @Param({"1000"})
+    public int maxValue;
+
+    @Param({"RANDOM", "SORTED", "REVERSED", "ORGAN_PIPE", "SAWTOOTH", "ZIPF", "GAUSSIAN", "FEW_UNIQUE", "K_SORTED"})
+    public Distribution distribution;
+
+    @Param({"INSERTION", "QUICK_FOR", "QUICK_WHILE", "QUICK_RANDOMIZED_FOR", "QUICK_RANDOMIZED_WHILE",
+            "QUICK_CHECKING_PRESORTED_FOR", "QUICK_CHECKING_PRESORTED_WHILE",
+            "PROJECT6_PART1", "PROJECT6_PART2", "PROJECT6_PART3", "PROJECT6_PART4",
+            "PROJECT6_PART5", "PROJECT6_PART6"})
+    public SortBenchmark.Algorithm algorithm;
+
+    @Param({"4"})
+    public int numThreads;
+
+    // the unsorted input, generated once per trial
+    private int[] input;
+    // the copies sorted by the next invocation, refreshed from input beforehand
+    private int[][] arrays;
+
+    /**
+     * Generates the input array for the current parameters.
+     */
+    @Setup(Level.Trial)
+    public void generate()
+    {
+        input = new ArrayGenerator(SortBenchmark.SEED, Runtime.getRuntime().availableProcessors()).generate(distribution, size, maxValue);
+        arrays = new int[BATCH][size];
+    }
+
+    /**
+     * Restores every copy to the unsorted input before each iteration, outside
+     * the measured region.
+     */
+    @Setup(Level.Iteration)
+    public void reset()
+    {
+        for(int[] array : arrays)
+        {
+            System.arraycopy(input, 0, array, 0, size);
+        }
+    }
+
+    /**
+     * Sorts every copy with the selected algorithm.
+     *
+     * @return The sorted copies, so the sorts cannot be eliminated as dead code.
+     */
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public int[][] sort()
+    {
+        for(int[] array : arrays)
+        {
+            SortBenchmark.sort(algorithm, array, numThreads);
+        }
+
+        return arrays;
+    }
+}
@@ -0,0 +1,192 @@
+package sortcomparisons.jmh;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import proj6.Project6;
+import sortcomparisons.ArrayGenerator;
+import sortcomparisons.Distribution;
+import sortcomparisons.InsertionSort;
+import sortcomparisons.QuickSort;
+
+/**
+ * JMH replacement for the single-shot timings in Benchmark. The QuickSort and
+ * Project6 sort modes are run against every combination of the parameters
+ * below, with warmup iterations and separate forked JVMs, so JIT and OSR
+ * compilation settle before anything is measured and JMH reports an error
+ * margin alongside each score.
+ *
+ * Only the distributions on which every mode here runs in O(n log n) are
+ * measured at these sizes. InsertionSort, and the inputs that drive the
+ * last-element pivots quadratic (sorted, reversed, organ pipe, sawtooth, few
+ * unique and k-sorted), are measured on small arrays by SmallSortBenchmark,
+ * so the whole matrix of both runs in about an hour.
+ *
+ * Build and run from the jmh directory with:
+ * mvn package
+ * java -jar target/benchmarks.jar -rf json -rff results.json
+ *
+ * Either benchmark may be run alone by naming it, and any parameter may be
+ * narrowed on the command line, for example
+ * SortBenchmark -p algorithm=QUICK_RANDOMIZED_WHILE -p size=100000.
+ *
+ * @author Alex Laird
+ * @version 1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class SortBenchmark
+{
+    /**
+     * The sort modes being compared.
+     */
+    public enum Algorithm
+    {
+        INSERTION,
+        QUICK_FOR,
+        QUICK_WHILE,
+        QUICK_RANDOMIZED_FOR,
+        QUICK_RANDOMIZED_WHILE,
+        QUICK_CHECKING_PRESORTED_FOR,
+        QUICK_CHECKING_PRESORTED_WHILE,
+        PROJECT6_PART1,
+        PROJECT6_PART2,
+        PROJECT6_PART3,
+        PROJECT6_PART4,
+        PROJECT6_PART5,
+        PROJECT6_PART6
+    }
+
+    // the seed for input generation, so every fork sorts the same data
+    static final long SEED = 20091019L;
+
+    // object declarations, shared since neither keeps any state between sorts
+    private static final InsertionSort insertionSort = new InsertionSort();
+    private static final QuickSort quickSort = new QuickSort();
+
+    @Param({"10000", "100000"})
+    public int size;
+
+    @Param({"1000", "1000000"})
+    public int maxValue;
+
+    @Param({"RANDOM", "ZIPF", "GAUSSIAN"})
+    public Distribution distribution;
+
+    @Param({"QUICK_FOR", "QUICK_WHILE", "QUICK_RANDOMIZED_FOR", "QUICK_RANDOMIZED_WHILE",
+            "QUICK_CHECKING_PRESORTED_FOR", "QUICK_CHECKING_PRESORTED_WHILE",
+            "PROJECT6_PART1", "PROJECT6_PART2", "PROJECT6_PART3", "PROJECT6_PART4",
+            "PROJECT6_PART5", "PROJECT6_PART6"})
+    public Algorithm algorithm;
+
+    @Param({"4"})
+    public int numThreads;
+
+    // the unsorted input, generated once per trial
+    private int[] input;
+    // the array sorted by each invocation, refreshed from input beforehand
+    private int[] array;
+
+    /**
+     * Generates the input array for the current parameters.
+     */
+    @Setup(Level.Trial)
+    public void generate()
+    {
+        input = new ArrayGenerator(SEED, Runtime.getRuntime().availableProcessors()).generate(distribution, size, maxValue);
+        array = new int[size];
+    }
+
+    /**
+     * Restores the unsorted input before every invocation. The copy is done
+     * outside the measured region; each sort here takes a millisecond or
+     * more, so the per-invocation setup costs nothing measurable.
+     */
+    @Setup(Level.Invocation)
+    public void reset()
+    {
+        System.arraycopy(input, 0, array, 0, size);
+    }
+
+    /**
+     * Sorts the array with the selected algorithm.
+     *
+     * @return The sorted array, so the sort cannot be eliminated as dead code.
+     */
+    @Benchmark
+    public int[] sort()
+    {
+        sort(algorithm, array, numThreads);
+        return array;
+    }
+
+    /**
+     * Sorts an array with the given algorithm.
+     *
+     * @param algorithm The sort mode to use.
+     * @param array The array to sort.
+     * @param numThreads The number of threads for the Project6 parts.
+     */
+    static void sort(Algorithm algorithm, int[] array, int numThreads)
+    {
+        int size = array.length;
+        // Project6 keeps per-run counters, so each sort needs its own
+        Project6 proj6 = new Project6(numThreads);
+        switch(algorithm)
+        {
+            case INSERTION:
+                insertionSort.sort(array);
+                break;
+            case QUICK_FOR:
+                quickSort.sortUsingFor(array, 0, size - 1);
+                break;
+            case QUICK_WHILE:
+                quickSort.sortUsingWhile(array, 0, size - 1);
+                break;
+            case QUICK_RANDOMIZED_FOR:
+                quickSort.sortRandomizedPartitionUsingFor(array, 0, size - 1);
+                break;
+            case QUICK_RANDOMIZED_WHILE:
+                quickSort.sortRandomizedPartitionUsingWhile(array, 0, size - 1);
+                break;
+            case QUICK_CHECKING_PRESORTED_FOR:
+                quickSort.sortCheckingPresortedUsingFor(array, 0, size - 1);
+                break;
+            case QUICK_CHECKING_PRESORTED_WHILE:
+                quickSort.sortCheckingPresortedUsingWhile(array, 0, size - 1);
+                break;
+            case PROJECT6_PART1:
+                proj6.runPart(1, array);
+                break;
+            case PROJECT6_PART2:
+                proj6.runPart(2, array);
+                break;
+            case PROJECT6_PART3:
+                proj6.runPart(3, array);
+                break;
+            case PROJECT6_PART4:
+                proj6.runPart(4, array);
+                break;
+            case PROJECT6_PART5:
+                proj6.runPart(5, array);
+                break;
+            case PROJECT6_PART6:
+                proj6.runPart(6, array);
+                break;
+        }
+    }
+}
@@ -0,0 +1,301 @@
+package sortcomparisons;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Measures the bytes allocated by every thread of the JVM, and the garbage
+ * collections that ran, between a call to begin and a call to end. Allocation
+ * is read per thread from com.sun.management.ThreadMXBean, so worker threads
+ * are counted along with the calling thread. A worker that may exit before
+ * end is called must call threadFinished as its last step (threads made by
+ * threadFactory and forkJoinThreadFactory do so already), or its allocation
+ * is lost with it.
+ *
+ * On a JVM without per-thread allocation accounting, allocation is reported
+ * as -1. Only one monitor should be measuring at a time.
+ *
+ * @author Alex Laird
+ * @version 1.0
+ */
+public class AllocationMonitor
+{
+    // the allocation accounting bean, or null if the JVM does not support it
+    private static final com.sun.management.ThreadMXBean threadBean = allocationBean();
+    // the final allocation of each thread that finished since the last begin, by thread ID
+    private static final Map<Long, Long> finished = new ConcurrentHashMap<Long, Long>();
+    // the bytes the monitor allocates itself between begin and end, measured once
+    private static final long overhead = measureOverhead();
+
+    // the thread IDs and their allocated bytes when begin was called
+    private long[] startIds;
+    private long[] startBytes;
+    // the garbage collection totals when begin was called
+    private long startGcCount;
+    private long startGcTimeMs;
+
+    // the measurements taken by end
+    private long allocatedBytes = -1;
+    private long gcCount = 0;
+    private long gcTimeMs = 0;
+
+    /**
+     * Finds the allocation accounting bean and switches accounting on.
+     *
+     * @return The bean, or null if the JVM does not support allocation accounting.
+     */
+    private static com.sun.management.ThreadMXBean allocationBean()
+    {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if(!(bean instanceof com.sun.management.ThreadMXBean))
+        {
+            return null;
+        }
+
+        com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean) bean;
+        if(!allocationBean.isThreadAllocatedMemorySupported())
+        {
+            return null;
+        }
+        allocationBean.setThreadAllocatedMemoryEnabled(true);
+        return allocationBean;
+    }
+
+    /**
+     * Measures what begin and end allocate with nothing in between, so it can
+     * be left out of every measurement.
+     *
+     * @return The fewest bytes seen over several empty measurements.
+     */
+    private static long measureOverhead()
+    {
+        if(threadBean == null)
+        {
+            return 0;
+        }
+
+        long fewest = Long.MAX_VALUE;
+        for(int i = 0; i < 10; ++i)
+        {
+            AllocationMonitor monitor = new AllocationMonitor();
+            monitor.begin();
+            monitor.end();
+            fewest = Math.min(fewest, monitor.allocatedBytes);
+        }
+        return fewest;
+    }
+
+    /**
+     * Records the final allocation of the calling thread. A worker thread
+     * calls this as the last thing it does, so its allocation still counts if
+     * it has exited by the time end is called.
+     */
+    public static void threadFinished()
+    {
+        if(threadBean != null)
+        {
+            long id = Thread.currentThread().getId();
+            finished.put(id, threadBean.getThreadAllocatedBytes(id));
+        }
+    }
+
+    /**
+     * Builds a thread factory for executors whose threads call threadFinished
+     * when they exit.
+     *
+     * @return The thread factory.
+     */
+    public static ThreadFactory threadFactory()
+    {
+        final ThreadFactory defaultFactory = Executors.defaultThreadFactory();
+        return new ThreadFactory()
+        {
+            public Thread newThread(final Runnable runnable)
+            {
+                return defaultFactory.newThread(new Runnable()
+                {
+                    public void run()
+                    {
+                        try
+                        {
+                            runnable.run();
+                        }
+                        finally
+                        {
+                            threadFinished();
+                        }
+                    }
+                });
+            }
+        };
+    }
+
+    /**
+     * Builds a thread factory like threadFactory whose threads are daemons, for
+     * pools that are kept for reuse and so may never be shut down, which must
+     * not keep the JVM alive.
+     *
+     * @return The thread factory.
+     */
+    public static ThreadFactory daemonThreadFactory()
+    {
+        final ThreadFactory factory = threadFactory();
+        return new ThreadFactory()
+        {
+            public Thread newThread(Runnable runnable)
+            {
+                Thread thread = factory.newThread(runnable);
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+    }
+
+    /**
+     * Builds a thread factory for fork/join pools whose worker threads call
+     * threadFinished when they exit.
+     *
+     * @return The fork/join thread factory.
+     */
+    public static ForkJoinPool.ForkJoinWorkerThreadFactory forkJoinThreadFactory()
+    {
+        return new ForkJoinPool.ForkJoinWorkerThreadFactory()
+        {
+            public ForkJoinWorkerThread newThread(ForkJoinPool pool)
+            {
+                return new ForkJoinWorkerThread(pool)
+                {
+                    @Override
+                    protected void onTermination(Throwable exception)
+                    {
+                        threadFinished();
+                        super.onTermination(exception);
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * Sums the collection count and collection time of every garbage collector.
+     *
+     * @return The total collection count and total collection time in milliseconds.
+     */
+    private static long[] gcTotals()
+    {
+        long count = 0;
+        long time = 0;
+        List<GarbageCollectorMXBean> collectors = ManagementFactory.getGarbageCollectorMXBeans();
+        for(GarbageCollectorMXBean collector : collectors)
+        {
+            count += Math.max(collector.getCollectionCount(), 0);
+            time += Math.max(collector.getCollectionTime(), 0);
+        }
+        return new long[] {count, time};
+    }
+
+    /**
+     * Starts measuring.
+     */
+    public void begin()
+    {
+        finished.clear();
+        long[] gc = gcTotals();
+        startGcCount = gc[0];
+        startGcTimeMs = gc[1];
+        if(threadBean != null)
+        {
+            startIds = threadBean.getAllThreadIds();
+            startBytes = threadBean.getThreadAllocatedBytes(startIds);
+        }
+    }
+
+    /**
+     * Stops measuring. The measurements are then available from the getters.
+     */
+    public void end()
+    {
+        if(threadBean != null)
+        {
+            long[] ids = threadBean.getAllThreadIds();
+            long[] bytes = threadBean.getThreadAllocatedBytes(ids);
+
+            long total = 0;
+            for(int i = 0; i < ids.length; ++i)
+            {
+                // a thread that already recorded its final allocation is counted below
+                if(bytes[i] >= 0 && !finished.containsKey(ids[i]))
+                {
+                    total += bytes[i] - startBytesOf(ids[i]);
+                }
+            }
+            for(Map.Entry<Long, Long> entry : finished.entrySet())
+            {
+                total += entry.getValue() - startBytesOf(entry.getKey());
+            }
+            allocatedBytes = Math.max(total - overhead, 0);
+        }
+
+        long[] gc = gcTotals();
+        gcCount = gc[0] - startGcCount;
+        gcTimeMs = gc[1] - startGcTimeMs;
+    }
+
+    /**
+     * Looks up the bytes a thread had allocated when begin was called.
+     *
+     * @param id The thread ID.
+     * @return The bytes allocated at begin, or 0 if the thread did not exist yet.
+     */
+    private long startBytesOf(long id)
+    {
+        for(int i = 0; i < startIds.length; ++i)
+        {
+            if(startIds[i] == id)
+            {
+                return Math.max(startBytes[i], 0);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Retrieve the bytes allocated by every thread between begin and end.
+     *
+     * @return The bytes allocated, or -1 if the JVM does not support allocation accounting.
+     */
+    public long getAllocatedBytes()
+    {
+        return allocatedBytes;
+    }
+
+    /**
+     * Retrieve the number of garbage collections between begin and end.
+     *
+     * @return The number of garbage collections.
+     */
+    public long getGcCount()
+    {
+        return gcCount;
+    }
+
+    /**
+     * Retrieve the time spent in garbage collection between begin and end,
+     * as reported by the collectors. For stop-the-world collectors this is the
+     * total pause time.
+     *
+     * @return The garbage collection time in milliseconds.
+     */
+    public long getGcTimeMs()
+    {
+        return gcTimeMs;
+    }
+}
@@ -0,0 +1,408 @@
+package sortcomparisons;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generates input arrays of any Distribution. The array is split into fixed
+ * size chunks and each chunk draws from its own SplittableRandom, split from
+ * a root generator in chunk order before any thread starts, so the same seed
+ * always produces the same array no matter how many threads fill it. Every
+ * filling thread has exited by the time generate returns, so none is still
+ * stopping while the array is sorted and timed.
+ *
+ * @author Alex Laird
+ * @version 1.0
+ */
+public class ArrayGenerator
+{
+    // the number of elements filled from each SplittableRandom
+    private static final int CHUNK_SIZE = 1 << 16;
+    // the number of distinct values in a FEW_UNIQUE array
+    private static final int FEW_UNIQUE_VALUES = 8;
+    // the number of ascending runs in a SAWTOOTH array
+    private static final int SAWTOOTH_TEETH = 8;
+    // the default distance elements of a K_SORTED array may be from their sorted position
+    private static final int DEFAULT_DISORDER = 16;
+
+    // the seed the root generator starts from
+    private final long seed;
+    // the number of threads filling the array
+    private final int numThreads;
+    // the distance elements of a K_SORTED array may be from their sorted position
+    private int disorder = DEFAULT_DISORDER;
+
+    /**
+     * Constructs a generator.
+     *
+     * @param seed The seed the root generator starts from.
+     * @param numThreads The number of threads filling each array.
+     */
+    public ArrayGenerator(long seed, int numThreads)
+    {
+        this.seed = seed;
+        this.numThreads = numThreads;
+    }
+
+    /**
+     * Sets how far elements of a K_SORTED array may be from their sorted position.
+     *
+     * @param k The greatest distance any element may be from its sorted position.
+     */
+    public void setDisorder(int k)
+    {
+        disorder = k;
+    }
+
+    /**
+     * Generates an array of the given distribution.
+     *
+     * @param distribution The shape of the data.
+     * @param size The size of the array.
+     * @param maxValue Elements are between 0 (inclusive) and maxValue.
+     * @return The newly generated array.
+     */
+    public int[] generate(Distribution distribution, int size, int maxValue)
+    {
+        int[] array = new int[size];
+
+        if(distribution == Distribution.ANTI_QUICKSORT)
+        {
+            antiQuickSort(array);
+            return array;
+        }
+
+        if(distribution == Distribution.SORTED || distribution == Distribution.REVERSED || distribution == Distribution.K_SORTED)
+        {
+            fill(Distribution.RANDOM, array, maxValue, CHUNK_SIZE);
+            Arrays.parallelSort(array);
+        }
+
+        if(distribution == Distribution.REVERSED)
+        {
+            new QuickSort().reverse(array, 0, size - 1);
+        }
+        else if(distribution == Distribution.K_SORTED)
+        {
+            // chunks are aligned to whole shuffle blocks so no block straddles two chunks
+            fill(distribution, array, maxValue, Math.max(1, CHUNK_SIZE / (disorder + 1)) * (disorder + 1));
+        }
+        else if(distribution != Distribution.SORTED)
+        {
+            fill(distribution, array, maxValue, CHUNK_SIZE);
+        }
+
+        return array;
+    }
+
+    /**
+     * Fills the array chunk by chunk, each from its own SplittableRandom,
+     * spreading the chunks across numThreads threads.
+     *
+     * @param distribution The shape of the data.
+     * @param array The array to fill.
+     * @param maxValue Elements are between 0 (inclusive) and maxValue.
+     * @param chunkSize The number of elements in each chunk.
+     */
+    private void fill(final Distribution distribution, final int[] array, final int maxValue, int chunkSize)
+    {
+        // split every chunk's generator up front so the result is independent of scheduling
+        SplittableRandom root = new SplittableRandom(seed);
+        List<Callable<Object>> chunks = new ArrayList<Callable<Object>>();
+        for(int from = 0; from < array.length; from += chunkSize)
+        {
+            final int chunkFrom = from;
+            final int chunkTo = (int) Math.min((long) from + chunkSize, array.length);
+            final SplittableRandom random = root.split();
+            chunks.add(new Callable<Object>()
+            {
+                public Object call()
+                {
+                    fillChunk(distribution, array, chunkFrom, chunkTo, maxValue, random);
+                    return null;
+                }
+            });
+        }
+
+        if(numThreads <= 1 || chunks.size() <= 1)
+        {
+            for(Callable<Object> chunk : chunks)
+            {
+                try
+                {
+                    chunk.call();
+                }
+                catch(Exception ex)
+                {
+                    throw new IllegalStateException(ex);
+                }
+            }
+            return;
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(numThreads);
+        try
+        {
+            for(Future<Object> future : pool.invokeAll(chunks))
+            {
+                future.get();
+            }
+        }
+        catch(InterruptedException ex)
+        {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while generating an array.", ex);
+        }
+        catch(ExecutionException ex)
+        {
+            throw new IllegalStateException(ex.getCause());
+        }
+        finally
+        {
+            shutdown(pool);
+        }
+    }
+
+    /**
+     * Shuts the pool down and waits for its threads to exit, so that none is
+     * still stopping once generate has returned, even if it was interrupted.
+     *
+     * @param pool The pool to shut down.
+     */
+    private static void shutdown(ExecutorService pool)
+    {
+        pool.shutdown();
+        boolean interrupted = false;
+        while(true)
+        {
+            try
+            {
+                if(pool.awaitTermination(1, TimeUnit.SECONDS))
+                {
+                    break;
+                }
+            }
+            catch(InterruptedException ex)
+            {
+                interrupted = true;
+            }
+        }
+        if(interrupted)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Fills indeces from (inclusive) through to (exclusive) of the array.
+     *
+     * @param distribution The shape of the data.
+     * @param array The array to fill.
+     * @param from The first index to fill.
+     * @param to One past the last index to fill.
+     * @param maxValue Elements are between 0 (inclusive) and maxValue.
+     * @param random The generator for this chunk.
+     */
+    private void fillChunk(Distribution distribution, int[] array, int from, int to, int maxValue, SplittableRandom random)
+    {
+        int size = array.length;
+        switch(distribution)
+        {
+            case RANDOM:
+                for(int i = from; i < to; ++i)
+                {
+                    array[i] = random.nextInt(maxValue);
+                }
+                break;
+            case ORGAN_PIPE:
+                int half = Math.max(1, size / 2);
+                for(int i = from; i < to; ++i)
+                {
+                    int distance = i < half ? i : size - 1 - i;
+                    array[i] = (int) Math.min(maxValue - 1, (long) distance * maxValue / half);
+                }
+                break;
+            case SAWTOOTH:
+                int tooth = Math.max(1, (size + SAWTOOTH_TEETH - 1) / SAWTOOTH_TEETH);
+                for(int i = from; i < to; ++i)
+                {
+                    array[i] = (int) ((long) (i % tooth) * maxValue / tooth);
+                }
+                break;
+            case ZIPF:
+                // inverting the continuous 1 / x distribution gives x = maxValue^u for uniform u
+                double logMax = Math.log(maxValue + 1.0);
+                for(int i = from; i < to; ++i)
+                {
+                    array[i] = (int) Math.min(maxValue - 1, Math.exp(random.nextDouble() * logMax) - 1);
+                }
+                break;
+            case GAUSSIAN:
+                double mean = maxValue / 2.0;
+                double deviation = maxValue / 8.0;
+                for(int i = from; i < to; ++i)
+                {
+                    double value = mean + deviation * nextGaussian(random);
+                    array[i] = (int) Math.max(0, Math.min(maxValue - 1, value));
+                }
+                break;
+            case FEW_UNIQUE:
+                int step = Math.max(1, maxValue / FEW_UNIQUE_VALUES);
+                for(int i = from; i < to; ++i)
+                {
+                    array[i] = random.nextInt(FEW_UNIQUE_VALUES) * step % maxValue;
+                }
+                break;
+            case K_SORTED:
+                // shuffle each block of k + 1 already sorted elements, so no element can leave its block
+                for(int start = from; start < to; start += disorder + 1)
+                {
+                    int end = Math.min(start + disorder + 1, to);
+                    for(int i = end - 1; i > start; --i)
+                    {
+                        int j = start + random.nextInt(i - start + 1);
+                        int temp = array[i];
+                        array[i] = array[j];
+                        array[j] = temp;
+                    }
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Cannot fill chunks of " + distribution);
+        }
+    }
+
+    /**
+     * Draws a standard normal value using the Box-Muller transform, since
+     * SplittableRandom has no nextGaussian.
+     *
+     * @param random The generator to draw from.
+     * @return A normally distributed value with mean 0 and standard deviation 1.
+     */
+    private static double nextGaussian(SplittableRandom random)
+    {
+        double u = 1.0 - random.nextDouble();
+        double v = random.nextDouble();
+
+        return Math.sqrt(-2.0 * Math.log(u)) * Math.cos(2.0 * Math.PI * v);
+    }
+
+    /**
+     * Builds McIlroy's "killer adversary" input against QuickSort using the
+     * last element as its pivot, as both QuickSort.partitionUsingFor and
+     * Project6.partition do. A copy of that sort is run over the indeces of
+     * the array, and every element starts out as undecided "gas". Whenever two
+     * gas elements are compared, one of them is frozen to the next smallest
+     * value, always favoring the element that was most recently the pivot
+     * candidate, so every partition comes out as lopsided as possible.
+     * Building the input costs as much as the quadratic sort it defeats, so it
+     * is only practical for arrays of up to about a hundred thousand elements.
+     *
+     * @param array The array to fill with values between 0 and its length.
+     */
+    private static void antiQuickSort(int[] array)
+    {
+        int size = array.length;
+        // values of frozen elements, or gas (size) for undecided ones
+        final int gas = size;
+        int[] values = new int[size];
+        Arrays.fill(values, gas);
+        int[] indeces = new int[size];
+        for(int i = 0; i < size; ++i)
+        {
+            indeces[i] = i;
+        }
+
+        // [0] counts frozen elements and [1] is the current pivot candidate
+        int[] state = new int[2];
+
+        int low = 0;
+        int high = size - 1;
+        // the upper portions still to be sorted, visited in the same order the recursive sort would
+        int[] stack = new int[2 * size + 2];
+        int top = 0;
+        while(true)
+        {
+            while(low < high)
+            {
+                int pivot = indeces[high];
+                int i = low - 1;
+                for(int j = low; j < high; ++j)
+                {
+                    if(compareGas(values, state, gas, indeces[j], pivot) <= 0)
+                    {
+                        ++i;
+                        int temp = indeces[i];
+                        indeces[i] = indeces[j];
+                        indeces[j] = temp;
+                    }
+                }
+                ++i;
+                int temp = indeces[i];
+                indeces[i] = indeces[high];
+                indeces[high] = temp;
+
+                // sort the lower portion next and come back for the upper portion
+                stack[top++] = i + 1;
+                stack[top++] = high;
+                high = i - 1;
+            }
+            if(top == 0)
+            {
+                break;
+            }
+            high = stack[--top];
+            low = stack[--top];
+        }
+
+        // anything still undecided never influenced a comparison, so it can take any value
+        for(int i = 0; i < size; ++i)
+        {
+            array[i] = values[i] == gas ? state[0]++ : values[i];
+        }
+    }
+
+    /**
+     * Compares two elements for McIlroy's adversary, freezing gas elements as
+     * needed so the comparison has an answer.
+     *
+     * @param values The value of each element, or gas if undecided.
+     * @param state The number of frozen elements, then the current pivot candidate.
+     * @param gas The value marking an undecided element.
+     * @param x The first element.
+     * @param y The second element.
+     * @return Negative, zero or positive as x is less than, equal to or greater than y.
+     */
+    private static int compareGas(int[] values, int[] state, int gas, int x, int y)
+    {
+        if(values[x] == gas && values[y] == gas)
+        {
+            if(x == state[1])
+            {
+                values[x] = state[0]++;
+            }
+            else
+            {
+                values[y] = state[0]++;
+            }
+        }
+        if(values[x] == gas)
+        {
+            state[1] = x;
+        }
+        else if(values[y] == gas)
+        {
+            state[1] = y;
+        }
+
+        return Integer.compare(values[x], values[y]);
+    }
+}
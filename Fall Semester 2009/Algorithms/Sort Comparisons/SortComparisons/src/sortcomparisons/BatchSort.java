@@ -0,0 +1,198 @@
+package sortcomparisons;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Sorts many small arrays at once. The arrays are stored back to back in one
+ * flat array, and an offsets array describes where each segment begins and
+ * ends: segment i occupies indeces offsets[i] (inclusive) through
+ * offsets[i + 1] (exclusive), so offsets holds one more entry than there are
+ * segments.
+ *
+ * @author Alex Laird
+ * @version 1.0
+ */
+public class BatchSort
+{
+    // segments of this size or smaller are sorted using InsertionSort, unless tuned for this host; InsertionSort
+    // beats QuickSort's recursion and pivot draws on random segments up to about 200 elements
+    public static final int INSERTION_CUTOFF = Tuning.get(Tuning.INSERTION_CUTOFF, 192);
+    // the number of chunks handed to each thread when sorting in parallel
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    // object declarations
+    private final InsertionSort insertionSort = new InsertionSort();
+    private final QuickSort quickSort = new QuickSort();
+    // the pool reused by every parallel call that does not pass its own, or null until one is made
+    private ExecutorService pool;
+    // the number of threads in pool
+    private int poolThreads;
+
+    /**
+     * Sorts a single segment, choosing InsertionSort or QuickSort based on its
+     * size.
+     *
+     * @param data The flat array holding every segment.
+     * @param low The lowest index of the segment.
+     * @param high The highest index of the segment.
+     */
+    private void sortSegment(int[] data, int low, int high)
+    {
+        if(high - low + 1 <= INSERTION_CUTOFF)
+        {
+            insertionSort.sort(data, low, high);
+        }
+        else
+        {
+            quickSort.sortRandomizedPartitionUsingWhile(data, low, high);
+        }
+    }
+
+    /**
+     * Sorts segments first (inclusive) through last (exclusive).
+     *
+     * @param data The flat array holding every segment.
+     * @param offsets The start index of each segment, followed by the end of the last segment.
+     * @param first The first segment to sort.
+     * @param last One past the last segment to sort.
+     */
+    private void sortSegments(int[] data, int[] offsets, int first, int last)
+    {
+        for(int i = first; i < last; ++i)
+        {
+            sortSegment(data, offsets[i], offsets[i + 1] - 1);
+        }
+    }
+
+    /**
+     * Sorts every segment of the flat array on the calling thread.
+     *
+     * @param data The flat array holding every segment.
+     * @param offsets The start index of each segment, followed by the end of the last segment.
+     */
+    public void sortSegments(int[] data, int[] offsets)
+    {
+        sortSegments(data, offsets, 0, offsets.length - 1);
+    }
+
+    /**
+     * Retrieve the shared pool, making it, or remaking it at a new size, on
+     * first use. Its threads are daemons, so a BatchSort that is never shut
+     * down does not keep the JVM alive.
+     *
+     * @param numThreads The number of threads the pool should have.
+     * @return The shared pool.
+     */
+    private synchronized ExecutorService getPool(int numThreads)
+    {
+        if(pool == null || poolThreads != numThreads)
+        {
+            if(pool != null)
+            {
+                pool.shutdown();
+            }
+            // the pool's threads report their allocation as they exit, for AllocationMonitor
+            pool = Executors.newFixedThreadPool(numThreads, AllocationMonitor.daemonThreadFactory());
+            poolThreads = numThreads;
+        }
+        return pool;
+    }
+
+    /**
+     * Releases the shared pool. A later parallel call makes a new one.
+     */
+    public synchronized void shutdown()
+    {
+        if(pool != null)
+        {
+            pool.shutdown();
+            pool = null;
+        }
+    }
+
+    /**
+     * Sorts every segment of the flat array, fanning groups of segments out
+     * across numThreads threads of a pool shared by every call on this
+     * BatchSort, so the threads are only started once.
+     *
+     * @param data The flat array holding every segment.
+     * @param offsets The start index of each segment, followed by the end of the last segment.
+     * @param numThreads The number of threads to sort with.
+     * @throws InterruptedException If interrupted while waiting for the threads to finish.
+     * @throws ExecutionException If sorting a group of segments failed.
+     */
+    public void sortSegments(int[] data, int[] offsets, int numThreads) throws InterruptedException, ExecutionException
+    {
+        if(numThreads <= 1 || offsets.length <= 2)
+        {
+            sortSegments(data, offsets);
+            return;
+        }
+        sortSegments(data, offsets, getPool(numThreads), numThreads);
+    }
+
+    /**
+     * Sorts every segment of the flat array, fanning groups of segments out
+     * across the given pool, which the caller owns and keeps running. Groups
+     * are split so that each holds roughly the same number of elements, not
+     * the same number of segments.
+     *
+     * @param data The flat array holding every segment.
+     * @param offsets The start index of each segment, followed by the end of the last segment.
+     * @param pool The pool to sort on.
+     * @param numThreads The number of threads in the pool, which sets how many groups the segments are split into.
+     * @throws InterruptedException If interrupted while waiting for the threads to finish.
+     * @throws ExecutionException If sorting a group of segments failed.
+     */
+    public void sortSegments(final int[] data, final int[] offsets, ExecutorService pool, int numThreads) throws InterruptedException, ExecutionException
+    {
+        int segments = offsets.length - 1;
+        if(numThreads <= 1 || segments <= 1)
+        {
+            sortSegments(data, offsets);
+            return;
+        }
+
+        int chunks = numThreads * CHUNKS_PER_THREAD;
+        long elements = offsets[segments] - offsets[0];
+        List<Future<?>> futures = new ArrayList<Future<?>>();
+        int first = 0;
+        for(int chunk = 1; chunk <= chunks && first < segments; ++chunk)
+        {
+            // advance last until this chunk holds its share of the elements
+            long target = offsets[0] + elements * chunk / chunks;
+            int last = first + 1;
+            while(last < segments && offsets[last] < target)
+            {
+                ++last;
+            }
+            if(chunk == chunks)
+            {
+                last = segments;
+            }
+
+            final int chunkFirst = first;
+            final int chunkLast = last;
+            futures.add(pool.submit(new Callable<Object>()
+            {
+                public Object call()
+                {
+                    sortSegments(data, offsets, chunkFirst, chunkLast);
+                    return null;
+                }
+            }));
+            first = last;
+        }
+
+        for(Future<?> future : futures)
+        {
+            future.get();
+        }
+    }
+}
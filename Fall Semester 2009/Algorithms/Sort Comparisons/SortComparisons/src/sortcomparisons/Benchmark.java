@@ -3,6 +3,7 @@ package sortcomparisons;
 import java.text.DecimalFormat;
 import java.text.NumberFormat;
 import java.util.Random;
+import java.util.concurrent.ExecutionException;
 
 /**
  * Handles the array generation, sorting calls, and benchmark timings and outputs
@@ -20,6 +21,17 @@ public class Benchmark
     private static final NumberFormat formatter = new DecimalFormat("###,###");
     private static final InsertionSort insertionSort = new InsertionSort();
     private static final QuickSort quickSort = new QuickSort();
+    private static final BatchSort batchSort = new BatchSort();
+    // measures allocation from the end of each test header to the start of its footer
+    private static final AllocationMonitor allocation = new AllocationMonitor();
+    // holds each test's measurements until its test set completes, keeping output out of the timed regions
+    private static final ResultBuffer results = new ResultBuffer(64);
+    private static final SortVerifier verifier = new SortVerifier(Runtime.getRuntime().availableProcessors());
+
+    // the fingerprint of the array being sorted by the current test, taken by its header
+    private static SortVerifier.Fingerprint fingerprint = null;
+    // true if each test's array should be verified as sorted, false for tests that do not sort
+    private static boolean verifySorts = true;
 
     // the size of the array
     private static int size = 10;
@@ -43,12 +55,14 @@ public class Benchmark
     }
 
     /**
-     * Outputs the footer for the current test set.
+     * Outputs every test of the current test set, followed by its footer.
      *
      * * @param conclusions Conclusions to be displayed. If no conclusions are to be displayed, make this parameter null.
      */
     private static void outputTestSetFooter(String conclusions)
     {
+        results.flush(System.out);
+        verifySorts = true;
         System.out.println("---TEST SET #" + testSetCounter + " COMPLETED----------------------");
         if(conclusions != null)
         {
@@ -58,27 +72,8 @@ public class Benchmark
     }
 
     /**
-     * Outputs the contents of an array.
-     *
-     * @param array The array to be output.
-     */
-    private static void outputArray(int[] array)
-    {
-        for(int i = 0; i < array.length; ++i)
-        {
-            if(i < array.length - 1)
-            {
-                System.out.print(array[i] + ", ");
-            }
-            else
-            {
-                System.out.print(array[i]);
-            }
-        }
-    }
-
-    /**
-     * Outputs benchmark header information regarding the array to be sorted.
+     * Records benchmark header information regarding the array to be sorted.
+     * Nothing is output until the test set completes.
      *
      * @param array The unsorted array.
      * @param testCounter The current test number being run.
@@ -87,39 +82,31 @@ public class Benchmark
      */
     private static void outputTestHeader(int[] array, int testCounter,  String method, boolean arrayOutput)
     {
-        System.out.println("----------------------------");
-        System.out.println("Test " + testSetCounter + "." + testCounter);
-        System.out.println("Array Size: " + formatter.format(array.length));
-        if(arrayOutput)
+        results.start(testSetCounter, testCounter, method, array, arrayOutput);
+        if(verifySorts)
         {
-            System.out.print("Array Elements Pre-Sort: [");
-            outputArray(array);
-            System.out.println("]");
+            fingerprint = verifier.fingerprint(array);
         }
-        System.out.println("Method Used: " + method);
-        System.out.println("Start Time: " + formatter.format(System.nanoTime()) + " ns");
+        allocation.begin();
     }
 
     /**
-     * Outputs the benchmark footer information regarding the recently sorted array.
+     * Records the benchmark footer information regarding the recently sorted
+     * array. Nothing is output until the test set completes.
      * 
      * @param array The array that was sorted.
-     * @param startTime The time in milliseconds when the sort started.
-     * @param endTime The time in milliseconds when the sort ended.
+     * @param startTime The time in nanoseconds when the sort started.
+     * @param endTime The time in nanoseconds when the sort ended.
      * @param arrayOutput True if the contents of the array should be output, false otherwise.
      */
     private static void outputTestFooter(int[] array, long startTime, long endTime, boolean arrayOutput)
     {
-        System.out.println("End Time: " + formatter.format(endTime) + " ns");
-        System.out.println("Total Runtime: " + formatter.format(endTime - startTime) + " ns");
-        System.out.println("Time Per Element: " + formatter.format((endTime - startTime) / array.length) + " ns");
-        if(arrayOutput)
+        allocation.end();
+        results.finish(array, startTime, endTime, allocation, arrayOutput);
+        if(verifySorts)
         {
-            System.out.print("Array Elements Post-Sort: [");
-            outputArray(array);
-            System.out.println("]");
+            results.verified(verifier.verify(array, fingerprint));
         }
-        System.out.println("----------------------------\n");
     }
 
     /**
@@ -219,6 +206,72 @@ public class Benchmark
         return array;
     }
 
+    /**
+     * Generates an array of size psuedo-random numbers between 0 and maxValue
+     * in which every element is at most k positions away from its sorted
+     * position. The sorted array is split into blocks of k + 1 elements and
+     * each block is shuffled, so no element can leave its block.
+     *
+     * @param k The greatest distance any element may be from its sorted position.
+     * @return An array of size nearly sorted psuedo-random numbers.
+     */
+    private static int[] generateKSortedArray(int k)
+    {
+        // instantiate a sorted array
+        int[] array = generateSortedArray();
+
+        for(int start = 0; start < array.length; start += k + 1)
+        {
+            int end = Math.min(start + k + 1, array.length);
+
+            // shuffle the block from start to end
+            for(int i = end - 1; i > start; --i)
+            {
+                int j = start + random.nextInt(i - start + 1);
+                int temp = array[i];
+                array[i] = array[j];
+                array[j] = temp;
+            }
+        }
+
+        return array;
+    }
+
+    /**
+     * Generates the offsets for segments back-to-back segments whose sizes are
+     * pseudo-random numbers between minSize (inclusive) and maxSize (inclusive).
+     *
+     * @param segments The number of segments.
+     * @param minSize The smallest size a segment may be.
+     * @param maxSize The largest size a segment may be.
+     * @return The start index of each segment, followed by the end of the last segment.
+     */
+    private static int[] generateSegmentOffsets(int segments, int minSize, int maxSize)
+    {
+        int[] offsets = new int[segments + 1];
+
+        for(int i = 0; i < segments; ++i)
+        {
+            offsets[i + 1] = offsets[i] + minSize + random.nextInt(maxSize - minSize + 1);
+        }
+
+        return offsets;
+    }
+
+    /**
+     * Records the benchmark footer information regarding a recently sorted
+     * batch of segments. Nothing is output until the test set completes.
+     *
+     * @param segments The number of segments that were sorted.
+     * @param startTime The time in nanoseconds when the sort started.
+     * @param endTime The time in nanoseconds when the sort ended.
+     */
+    private static void outputBatchTestFooter(int segments, long startTime, long endTime)
+    {
+        allocation.end();
+        results.finishBatch(segments, startTime, endTime, allocation);
+    }
+
     /**
      * Copy the contents of the passed in array to a new array and return that array.
      * 
@@ -237,6 +290,35 @@ public class Benchmark
         return newArray;
     }
 
+    /**
+     * Finds the fraction of elements in a sorted array that are smaller than
+     * value, which is the quantile at which value sits.
+     *
+     * @param sortedArray The sorted array.
+     * @param value The value to locate.
+     * @return The quantile of value in the array.
+     */
+    private static double rankOf(int[] sortedArray, int value)
+    {
+        int low = 0;
+        int high = sortedArray.length;
+
+        while(low < high)
+        {
+            int mid = (low + high) >>> 1;
+            if(sortedArray[mid] < value)
+            {
+                low = mid + 1;
+            }
+            else
+            {
+                high = mid;
+            }
+        }
+
+        return (double) low / sortedArray.length;
+    }
+
     /**
      * Verification of sorting algorithms using arrays of size 10. Should run through
      * all methods in InsertionSort and QuickSort. Displays their before and after
@@ -1761,7 +1843,339 @@ public class Benchmark
         ++testCounter;
         /*****************************/
 
-        outputTestSetFooter("On pre-sorted arrays, InsertionSort is always the most efficient, especially once the array\n             sizes reach the thousands, since it is O(n).");
+        // the pre-sorted arrays from the largest size above, one of them reversed
+        quickSort.reverse(testNine, 0, testNine.length - 1);
+        results.note("Pre-Sorted Presortedness: " + quickSort.presortedness(testSeven, 0, testSeven.length - 1));
+        results.note("Reverse Sorted Presortedness: " + quickSort.presortedness(testNine, 0, testNine.length - 1) + "\n");
+
+        /***TEST**********************/
+        outputTestHeader(testSeven, testCounter, "QuickSort using for loop with presorted check on pre-sorted array using standard partitioning", false);
+        startTime = System.nanoTime();
+        quickSort.sortCheckingPresortedUsingFor(testSeven, 0, testSeven.length - 1);
+        endTime = System.nanoTime();
+
+        outputTestFooter(testSeven, startTime, endTime, false);
+        ++testCounter;
+        /*****************************/
+
+        /***TEST**********************/
+        outputTestHeader(testNine, testCounter, "QuickSort using while loop with presorted check on reverse sorted array using standard partitioning", false);
+        startTime = System.nanoTime();
+        quickSort.sortCheckingPresortedUsingWhile(testNine, 0, testNine.length - 1);
+        endTime = System.nanoTime();
+
+        outputTestFooter(testNine, startTime, endTime, false);
+        ++testCounter;
+        /*****************************/
+
+        outputTestSetFooter("On pre-sorted arrays, InsertionSort is always the most efficient, especially once the array\n             sizes reach the thousands, since it is O(n). Checking for presorted input first gives QuickSort\n             the same linear time.");
+        ++testSetCounter;
+    }
+
+    /**
+     * Throughput of BatchSort on a large number of tiny segments, sorted one
+     * thread at a time and then fanned out across every available processor.
+     *
+     * @throws InterruptedException If interrupted while waiting for the sorting threads.
+     * @throws ExecutionException If a sorting thread failed.
+     */
+    public static void compareBatchSegmentThroughput() throws InterruptedException, ExecutionException
+    {
+        // declare test variables
+        long startTime;
+        long endTime;
+        int testCounter = 1;
+        int numThreads = Runtime.getRuntime().availableProcessors();
+        int segments = 200000;
+
+        // declare test arrays
+        int[] offsets = null;
+        int[] testOne = null;
+        int[] testTwo = null;
+        int[] testThree = null;
+        int[] testFour = null;
+
+        outputTestSetHeader("Throughput of BatchSort on " + formatter.format(segments) + " segments of size 5 to 100, with an insertion cutoff of " + BatchSort.INSERTION_CUTOFF);
+        // only each segment is sorted, not the array as a whole
+        verifySorts = false;
+        offsets = generateSegmentOffsets(segments, 5, 100);
+        setSize(offsets[segments]);
+        setMaxValue(1000);
+
+        testOne = generateRandomizedArray();
+        testTwo = copyArray(testOne);
+        testThree = copyArray(testOne);
+        testFour = copyArray(testOne);
+
+        /***TEST**********************/
+        outputTestHeader(testOne, testCounter, "InsertionSort called once per segment", false);
+        startTime = System.nanoTime();
+        for(int i = 0; i < segments; ++i)
+        {
+            insertionSort.sort(testOne, offsets[i], offsets[i + 1] - 1);
+        }
+        endTime = System.nanoTime();
+
+        outputBatchTestFooter(segments, startTime, endTime);
+        ++testCounter;
+        /*****************************/
+
+        /***TEST**********************/
+        outputTestHeader(testTwo, testCounter, "QuickSort using while loop with randomized partitioning called once per segment", false);
+        startTime = System.nanoTime();
+        for(int i = 0; i < segments; ++i)
+        {
+            quickSort.sortRandomizedPartitionUsingWhile(testTwo, offsets[i], offsets[i + 1] - 1);
+        }
+        endTime = System.nanoTime();
+
+        outputBatchTestFooter(segments, startTime, endTime);
+        ++testCounter;
+        /*****************************/
+
+        /***TEST**********************/
+        outputTestHeader(testThree, testCounter, "BatchSort on a single thread", false);
+        startTime = System.nanoTime();
+        batchSort.sortSegments(testThree, offsets);
+        endTime = System.nanoTime();
+
+        outputBatchTestFooter(segments, startTime, endTime);
+        ++testCounter;
+        /*****************************/
+
+        /***TEST**********************/
+        outputTestHeader(testFour, testCounter, "BatchSort on " + numThreads + " threads", false);
+        startTime = System.nanoTime();
+        batchSort.sortSegments(testFour, offsets, numThreads);
+        endTime = System.nanoTime();
+        // release the shared pool's threads, which are outside the timing
+        batchSort.shutdown();
+
+        outputBatchTestFooter(segments, startTime, endTime);
+        ++testCounter;
+        /*****************************/
+
+        outputTestSetFooter("Every segment here is at or below the insertion cutoff, so BatchSort sorts each with InsertionSort and keeps\n             pace with calling it once per segment. QuickSort pays for its recursion and a random pivot draw on\n             every call, and takes about twice as long on segments this small.");
+        ++testSetCounter;
+    }
+
+    /**
+     * Comparison speeds of InsertionSort, QuickSort and KSortedSorter on arrays
+     * whose elements are at most k positions from their sorted positions.
+     */
+    public static void compareKSortedWithQuick()
+    {
+        // declare test variables
+        long startTime;
+        long endTime;
+        int testCounter = 1;
+        int[] kValues = {1, 10, 100, 1000};
+
+        // declare test arrays
+        int[] testOne = null;
+        int[] testTwo = null;
+        int[] testThree = null;
+
+        outputTestSetHeader("Comparison speeds of InsertionSort, QuickSort and KSortedSorter on k-sorted arrays");
+        setSize(100000);
+        setMaxValue(1000000);
+
+        for(int k : kValues)
+        {
+            testOne = generateKSortedArray(k);
+            testTwo = copyArray(testOne);
+            testThree = copyArray(testOne);
+
+            /***TEST**********************/
+            outputTestHeader(testOne, testCounter, "InsertionSort on array with k = " + k, false);
+            startTime = System.nanoTime();
+            insertionSort.sort(testOne);
+            endTime = System.nanoTime();
+
+            outputTestFooter(testOne, startTime, endTime, false);
+            ++testCounter;
+            /*****************************/
+
+            /***TEST**********************/
+            outputTestHeader(testTwo, testCounter, "QuickSort using while loop on array with k = " + k + " using randomized partitioning", false);
+            startTime = System.nanoTime();
+            quickSort.sortRandomizedPartitionUsingWhile(testTwo, 0, testTwo.length - 1);
+            endTime = System.nanoTime();
+
+            outputTestFooter(testTwo, startTime, endTime, false);
+            ++testCounter;
+            /*****************************/
+
+            /***TEST**********************/
+            outputTestHeader(testThree, testCounter, "KSortedSorter on array with k = " + k, false);
+            startTime = System.nanoTime();
+            KSortedSorter.sort(testThree, k);
+            endTime = System.nanoTime();
+
+            outputTestFooter(testThree, startTime, endTime, false);
+            ++testCounter;
+            /*****************************/
+        }
+
+        outputTestSetFooter("InsertionSort wins while k is tiny, but its O(nk) cost overtakes it as k grows, while KSortedSorter\n             only pays log(k) per element and stays ahead of QuickSort.");
+        ++testSetCounter;
+    }
+
+    /**
+     * Accuracy and throughput of QuantileSketch against sorting the array with
+     * QuickSort and indexing into it for the p50, p95 and p99 values.
+     */
+    public static void compareQuantileSketchWithExact()
+    {
+        // declare test variables
+        long startTime;
+        long endTime;
+        int testCounter = 1;
+        int sketchSize = 200;
+        int numSketches = 4;
+        double[] quantiles = {0.5, 0.95, 0.99};
+        int[] exactValues = new int[quantiles.length];
+
+        // declare test arrays
+        int[] testOne = null;
+        int[] testTwo = null;
+        int[] testThree = null;
+        QuantileSketch sketch = null;
+        QuantileSketch[] sketches = new QuantileSketch[numSketches];
+
+        outputTestSetHeader("Accuracy and throughput of QuantileSketch against exact sort-then-index");
+        // the sketches read the array without sorting it
+        verifySorts = false;
+        setSize(1000000);
+        setMaxValue(1000000000);
+
+        testOne = generateRandomizedArray();
+        testTwo = copyArray(testOne);
+        testThree = copyArray(testOne);
+
+        /***TEST**********************/
+        outputTestHeader(testOne, testCounter, "QuickSort using while loop using randomized partitioning, then index", false);
+        startTime = System.nanoTime();
+        quickSort.sortRandomizedPartitionUsingWhile(testOne, 0, testOne.length - 1);
+        for(int i = 0; i < quantiles.length; ++i)
+        {
+            exactValues[i] = testOne[(int) (quantiles[i] * (testOne.length - 1))];
+        }
+        endTime = System.nanoTime();
+
+        outputTestFooter(testOne, startTime, endTime, false);
+        ++testCounter;
+        /*****************************/
+
+        /***TEST**********************/
+        outputTestHeader(testTwo, testCounter, "QuantileSketch with k = " + sketchSize, false);
+        startTime = System.nanoTime();
+        sketch = new QuantileSketch(sketchSize);
+        for(int i = 0; i < testTwo.length; ++i)
+        {
+            sketch.update(testTwo[i]);
+        }
+        for(double q : quantiles)
+        {
+            sketch.quantile(q);
+        }
+        endTime = System.nanoTime();
+
+        outputTestFooter(testTwo, startTime, endTime, false);
+        for(double q : quantiles)
+        {
+            results.note("p" + (int) (q * 100) + " Rank Error: " + Math.abs(rankOf(testOne, sketch.quantile(q)) - q));
+        }
+        results.note("");
+        ++testCounter;
+        /*****************************/
+
+        /***TEST**********************/
+        outputTestHeader(testThree, testCounter, numSketches + " merged QuantileSketches with k = " + sketchSize, false);
+        startTime = System.nanoTime();
+        for(int s = 0; s < numSketches; ++s)
+        {
+            sketches[s] = new QuantileSketch(sketchSize);
+            for(int i = s; i < testThree.length; i += numSketches)
+            {
+                sketches[s].update(testThree[i]);
+            }
+        }
+        for(int s = 1; s < numSketches; ++s)
+        {
+            sketches[0].merge(sketches[s]);
+        }
+        for(double q : quantiles)
+        {
+            sketches[0].quantile(q);
+        }
+        endTime = System.nanoTime();
+
+        outputTestFooter(testThree, startTime, endTime, false);
+        for(double q : quantiles)
+        {
+            results.note("p" + (int) (q * 100) + " Rank Error: " + Math.abs(rankOf(testOne, sketches[0].quantile(q)) - q));
+        }
+        results.note("");
+        ++testCounter;
+        /*****************************/
+
+        outputTestSetFooter(null);
+        ++testSetCounter;
+    }
+
+    /**
+     * Operation counts of QuickSort using the for loop partition against the
+     * while loop partition on the same random and few-valued arrays, to
+     * explain the difference in their timings. The counts are only collected
+     * when the JVM is started with -Dsortcomparisons.instrument=true.
+     */
+    public static void compareOperationCounts()
+    {
+        // declare test variables
+        int testCounter = 1;
+        int[] maxValues = {1000000, 10};
+
+        // declare test arrays
+        int[] testOne = null;
+        int[] testTwo = null;
+
+        outputTestSetHeader("Operation counts of QuickSort using a for loop compared to a while loop");
+        if(!OperationCounter.ENABLED)
+        {
+            System.out.println("Operation counting is disabled; run with -Dsortcomparisons.instrument=true to enable it.\n");
+            outputTestSetFooter(null);
+            ++testSetCounter;
+            return;
+        }
+        setSize(100000);
+
+        for(int max : maxValues)
+        {
+            setMaxValue(max);
+            testOne = generateRandomizedArray();
+            testTwo = copyArray(testOne);
+
+            /***TEST**********************/
+            System.out.println("Test " + testSetCounter + "." + testCounter);
+            System.out.println("Method Used: QuickSort using for loop with randomized partitioning on values below " + formatter.format(max));
+            OperationCounter.reset();
+            quickSort.sortRandomizedPartitionUsingFor(testOne, 0, testOne.length - 1);
+            System.out.println(OperationCounter.report() + "\n");
+            ++testCounter;
+            /*****************************/
+
+            /***TEST**********************/
+            System.out.println("Test " + testSetCounter + "." + testCounter);
+            System.out.println("Method Used: QuickSort using while loop with randomized partitioning on values below " + formatter.format(max));
+            OperationCounter.reset();
+            quickSort.sortRandomizedPartitionUsingWhile(testTwo, 0, testTwo.length - 1);
+            System.out.println(OperationCounter.report() + "\n");
+            ++testCounter;
+            /*****************************/
+        }
+
+        outputTestSetFooter("The while loop makes more comparisons, since both pointers scan, but the for loop swaps every element that\n             is not larger than the pivot, while the while loop only swaps elements on the wrong side.  With few distinct\n             values both degenerate, as equal keys all fall to one side of the pivot.");
         ++testSetCounter;
     }
 
@@ -1771,8 +2185,10 @@ public class Benchmark
      * of the program.
      *
      * @param args The command-line arguments, which are unused in this program.
+     * @throws InterruptedException If interrupted while waiting for a sorting thread.
+     * @throws ExecutionException If a sorting thread failed.
      */
-    public static void main(String[] args)
+    public static void main(String[] args) throws InterruptedException, ExecutionException
     {
         sortVerification();
         compareInsertionWithQuick();
@@ -1780,5 +2196,9 @@ public class Benchmark
         compareQuickPartitions();
         compareSpeedDifferencesOnChangingData();
         comparePreSortedWithUnsorted();
+        compareBatchSegmentThroughput();
+        compareKSortedWithQuick();
+        compareQuantileSketchWithExact();
+        compareOperationCounts();
     }
 }
@@ -0,0 +1,277 @@
+package sortcomparisons;
+
+/**
+ * The timings of one benchmark case, along with the host it was measured on,
+ * in the form written to and read from result files.
+ *
+ * @author Alex Laird
+ * @version 1.0
+ */
+public class BenchmarkResult
+{
+    // the sort mode that was run
+    private final String algorithm;
+    // the size of the array sorted
+    private final int size;
+    // the shape of the input data
+    private final String distribution;
+    // the number of threads the sort used
+    private final int threads;
+    // the number of timed runs
+    private final int samples;
+    // the mean runtime in nanoseconds
+    private final double meanNs;
+    // the sample standard deviation of the runtime in nanoseconds
+    private final double stdDevNs;
+    // the fastest runtime in nanoseconds
+    private final long minNs;
+    // the JVM the case ran on
+    private final String jvm;
+    // the CPU the case ran on
+    private final String cpu;
+    // the mean bytes allocated per run by every thread, or -1 if not measured
+    private final long bytesPerOp;
+    // the number of garbage collections during the runs
+    private final long gcCount;
+    // the time spent in garbage collection during the runs in milliseconds
+    private final long gcTimeMs;
+
+    /**
+     * Constructs a result.
+     *
+     * @param algorithm The sort mode that was run.
+     * @param size The size of the array sorted.
+     * @param distribution The shape of the input data.
+     * @param threads The number of threads the sort used.
+     * @param samples The number of timed runs.
+     * @param meanNs The mean runtime in nanoseconds.
+     * @param stdDevNs The sample standard deviation of the runtime in nanoseconds.
+     * @param minNs The fastest runtime in nanoseconds.
+     * @param jvm The JVM the case ran on.
+     * @param cpu The CPU the case ran on.
+     * @param bytesPerOp The mean bytes allocated per run by every thread, or -1 if not measured.
+     * @param gcCount The number of garbage collections during the runs.
+     * @param gcTimeMs The time spent in garbage collection during the runs in milliseconds.
+     */
+    public BenchmarkResult(String algorithm, int size, String distribution, int threads, int samples,
+                           double meanNs, double stdDevNs, long minNs, String jvm, String cpu,
+                           long bytesPerOp, long gcCount, long gcTimeMs)
+    {
+        this.algorithm = algorithm;
+        this.size = size;
+        this.distribution = distribution;
+        this.threads = threads;
+        this.samples = samples;
+        this.meanNs = meanNs;
+        this.stdDevNs = stdDevNs;
+        this.minNs = minNs;
+        this.jvm = jvm;
+        this.cpu = cpu;
+        this.bytesPerOp = bytesPerOp;
+        this.gcCount = gcCount;
+        this.gcTimeMs = gcTimeMs;
+    }
+
+    /**
+     * Constructs a result on the current host from the runtime of each run.
+     *
+     * @param algorithm The sort mode that was run.
+     * @param size The size of the array sorted.
+     * @param distribution The shape of the input data.
+     * @param threads The number of threads the sort used.
+     * @param times The runtime of each run in nanoseconds.
+     * @param samples The number of entries of times that were filled.
+     * @return The result.
+     */
+    public static BenchmarkResult fromTimes(String algorithm, int size, String distribution, int threads, long[] times, int samples)
+    {
+        return fromTimes(algorithm, size, distribution, threads, times, samples, null);
+    }
+
+    /**
+     * Constructs a result on the current host from the runtime of each run and
+     * the allocation measured across all of the runs.
+     *
+     * @param algorithm The sort mode that was run.
+     * @param size The size of the array sorted.
+     * @param distribution The shape of the input data.
+     * @param threads The number of threads the sort used.
+     * @param times The runtime of each run in nanoseconds.
+     * @param samples The number of entries of times that were filled.
+     * @param allocation The monitor that measured every run, or null if allocation was not measured.
+     * @return The result.
+     */
+    public static BenchmarkResult fromTimes(String algorithm, int size, String distribution, int threads, long[] times, int samples,
+                                            AllocationMonitor allocation)
+    {
+        long min = Long.MAX_VALUE;
+        double sum = 0;
+        for(int i = 0; i < samples; ++i)
+        {
+            min = Math.min(min, times[i]);
+            sum += times[i];
+        }
+        double mean = sum / samples;
+
+        double squares = 0;
+        for(int i = 0; i < samples; ++i)
+        {
+            squares += (times[i] - mean) * (times[i] - mean);
+        }
+        double stdDev = samples > 1 ? Math.sqrt(squares / (samples - 1)) : 0;
+
+        long bytesPerOp = -1;
+        long gcCount = 0;
+        long gcTimeMs = 0;
+        if(allocation != null)
+        {
+            bytesPerOp = allocation.getAllocatedBytes() < 0 ? -1 : allocation.getAllocatedBytes() / samples;
+            gcCount = allocation.getGcCount();
+            gcTimeMs = allocation.getGcTimeMs();
+        }
+
+        return new BenchmarkResult(algorithm, size, distribution, threads, samples, mean, stdDev, min,
+                                   ResultWriter.jvmDescription(), ResultWriter.cpuDescription(), bytesPerOp, gcCount, gcTimeMs);
+    }
+
+    /**
+     * Builds the key identifying which case this is, so the same case can be
+     * matched up across two result files.
+     *
+     * @return The key of this case.
+     */
+    public String getKey()
+    {
+        return algorithm + "," + size + "," + distribution + "," + threads;
+    }
+
+    /**
+     * Retrieve the sort mode that was run.
+     *
+     * @return The sort mode that was run.
+     */
+    public String getAlgorithm()
+    {
+        return algorithm;
+    }
+
+    /**
+     * Retrieve the size of the array sorted.
+     *
+     * @return The size of the array sorted.
+     */
+    public int getSize()
+    {
+        return size;
+    }
+
+    /**
+     * Retrieve the shape of the input data.
+     *
+     * @return The shape of the input data.
+     */
+    public String getDistribution()
+    {
+        return distribution;
+    }
+
+    /**
+     * Retrieve the number of threads the sort used.
+     *
+     * @return The number of threads the sort used.
+     */
+    public int getThreads()
+    {
+        return threads;
+    }
+
+    /**
+     * Retrieve the number of timed runs.
+     *
+     * @return The number of timed runs.
+     */
+    public int getSamples()
+    {
+        return samples;
+    }
+
+    /**
+     * Retrieve the mean runtime in nanoseconds.
+     *
+     * @return The mean runtime in nanoseconds.
+     */
+    public double getMeanNs()
+    {
+        return meanNs;
+    }
+
+    /**
+     * Retrieve the sample standard deviation of the runtime in nanoseconds.
+     *
+     * @return The standard deviation of the runtime in nanoseconds.
+     */
+    public double getStdDevNs()
+    {
+        return stdDevNs;
+    }
+
+    /**
+     * Retrieve the fastest runtime in nanoseconds.
+     *
+     * @return The fastest runtime in nanoseconds.
+     */
+    public long getMinNs()
+    {
+        return minNs;
+    }
+
+    /**
+     * Retrieve the JVM the case ran on.
+     *
+     * @return The JVM the case ran on.
+     */
+    public String getJvm()
+    {
+        return jvm;
+    }
+
+    /**
+     * Retrieve the CPU the case ran on.
+     *
+     * @return The CPU the case ran on.
+     */
+    public String getCpu()
+    {
+        return cpu;
+    }
+
+    /**
+     * Retrieve the mean bytes allocated per run by every thread.
+     *
+     * @return The bytes allocated per run, or -1 if not measured.
+     */
+    public long getBytesPerOp()
+    {
+        return bytesPerOp;
+    }
+
+    /**
+     * Retrieve the number of garbage collections during the runs.
+     *
+     * @return The number of garbage collections.
+     */
+    public long getGcCount()
+    {
+        return gcCount;
+    }
+
+    /**
+     * Retrieve the time spent in garbage collection during the runs.
+     *
+     * @return The garbage collection time in milliseconds.
+     */
+    public long getGcTimeMs()
+    {
+        return gcTimeMs;
+    }
+}
@@ -0,0 +1,476 @@
+package sortcomparisons;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.text.DecimalFormat;
+import java.text.NumberFormat;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Sweeps the size of the array being sorted from 1 KB up to 4 GB, in steps of
+ * a quarter octave, and measures the time per element of every SortAlgorithm
+ * at each size, along with any other engine handed to run. Plotting time per element against size shows where each
+ * engine slows down as its working set spills out of each level of the cache
+ * hierarchy into the next, which the few hand-picked sizes in Benchmark miss.
+ *
+ * The cache sizes of the host are read from /sys/devices/system/cpu, and each
+ * result is tagged with the smallest cache the array fits into. Each size is
+ * also timed with a plain System.arraycopy, which is the memory-bandwidth
+ * ceiling no sort can beat.
+ *
+ * Usage: java sortcomparisons.CacheScalingBenchmark [resultFile] [maxBytes] [seed]
+ *
+ * The sweep stops early at the largest size that fits in the heap twice over,
+ * so raise -Xmx to reach the top of the range. Every SortAlgorithm is single
+ * threaded; proj6.CacheScaling runs the same sweep with the Project6 parts
+ * added, since this project does not depend on Project6. Each result records
+ * the number of threads its engine sorted with.
+ *
+ * @author Alex Laird
+ * @version 1.0
+ */
+public class CacheScalingBenchmark
+{
+    // object declarations
+    private static final NumberFormat formatter = new DecimalFormat("###,###");
+    private static final NumberFormat decimalFormatter = new DecimalFormat("0.00");
+
+    // the smallest and largest array sizes swept, in bytes
+    private static final long MIN_BYTES = 1L << 10;
+    private static final long MAX_BYTES = 4L << 30;
+    // the number of sizes measured between each doubling
+    private static final int STEPS_PER_OCTAVE = 4;
+    // each size is run until at least this many elements have been sorted
+    private static final long ELEMENTS_PER_POINT = 1L << 22;
+    // each size is run at least this many times
+    private static final int MIN_RUNS = 3;
+    // InsertionSort is quadratic, so it is only measured up to this many elements
+    private static final int INSERTION_MAX_ELEMENTS = 4096;
+    // where Linux describes the caches of the first processor
+    private static final String CACHE_DIRECTORY = "/sys/devices/system/cpu/cpu0/cache";
+    // the result file written when none is given
+    private static final String DEFAULT_RESULT_FILE = "cache-scaling.csv";
+
+    /**
+     * One level of the host's cache hierarchy.
+     */
+    public static class CacheLevel
+    {
+        // the name of the level, such as L1d or L2
+        private final String name;
+        // the size of the level in bytes
+        private final long bytes;
+
+        /**
+         * Constructs a cache level.
+         *
+         * @param name The name of the level, such as L1d or L2.
+         * @param bytes The size of the level in bytes.
+         */
+        public CacheLevel(String name, long bytes)
+        {
+            this.name = name;
+            this.bytes = bytes;
+        }
+
+        /**
+         * Retrieve the name of the level.
+         *
+         * @return The name of the level.
+         */
+        public String getName()
+        {
+            return name;
+        }
+
+        /**
+         * Retrieve the size of the level in bytes.
+         *
+         * @return The size of the level in bytes.
+         */
+        public long getBytes()
+        {
+            return bytes;
+        }
+    }
+
+    /**
+     * A sort timed by the sweep. Each run sorts an array holding exactly the
+     * elements of the current size.
+     */
+    public static abstract class Engine
+    {
+        // the name the engine is recorded under
+        private final String name;
+        // the number of threads the engine sorts with
+        private final int threads;
+        // the largest array the engine is timed on
+        private final int maxElements;
+
+        /**
+         * Constructs an engine.
+         *
+         * @param name The name the engine is recorded under.
+         * @param threads The number of threads the engine sorts with.
+         * @param maxElements The largest array the engine is timed on.
+         */
+        public Engine(String name, int threads, int maxElements)
+        {
+            this.name = name;
+            this.threads = threads;
+            this.maxElements = maxElements;
+        }
+
+        /**
+         * Retrieve the name the engine is recorded under.
+         *
+         * @return The name of the engine.
+         */
+        public String getName()
+        {
+            return name;
+        }
+
+        /**
+         * Retrieve the number of threads the engine sorts with.
+         *
+         * @return The number of threads.
+         */
+        public int getThreads()
+        {
+            return threads;
+        }
+
+        /**
+         * Retrieve the largest array the engine is timed on.
+         *
+         * @return The largest number of elements.
+         */
+        public int getMaxElements()
+        {
+            return maxElements;
+        }
+
+        /**
+         * Sorts the whole array.
+         *
+         * @param array The array to be sorted.
+         */
+        public abstract void sort(int[] array);
+    }
+
+    /**
+     * Builds an engine for every SortAlgorithm, each on a single thread.
+     * InsertionSort is quadratic, so it is only timed up to
+     * INSERTION_MAX_ELEMENTS.
+     *
+     * @return The engines.
+     */
+    public static List<Engine> sortAlgorithmEngines()
+    {
+        List<Engine> engines = new ArrayList<Engine>();
+        for(final SortAlgorithm algorithm : SortAlgorithm.values())
+        {
+            int maxElements = algorithm == SortAlgorithm.INSERTION ? INSERTION_MAX_ELEMENTS : Integer.MAX_VALUE;
+            engines.add(new Engine(algorithm.name(), 1, maxElements)
+            {
+                public void sort(int[] array)
+                {
+                    algorithm.sort(array, 0, array.length - 1);
+                }
+            });
+        }
+        return engines;
+    }
+
+    /**
+     * Reads the first line of a file.
+     *
+     * @param file The file to read.
+     * @return The first line, trimmed.
+     * @throws IOException If the file could not be read.
+     */
+    private static String readLine(File file) throws IOException
+    {
+        BufferedReader reader = new BufferedReader(new FileReader(file));
+        try
+        {
+            String line = reader.readLine();
+            return line == null ? "" : line.trim();
+        }
+        finally
+        {
+            reader.close();
+        }
+    }
+
+    /**
+     * Parses a cache size as written by Linux, such as 48K or 32M.
+     *
+     * @param size The cache size.
+     * @return The size in bytes.
+     */
+    private static long parseSize(String size)
+    {
+        char unit = Character.toUpperCase(size.charAt(size.length() - 1));
+        if(unit == 'K')
+        {
+            return Long.parseLong(size.substring(0, size.length() - 1)) << 10;
+        }
+        else if(unit == 'M')
+        {
+            return Long.parseLong(size.substring(0, size.length() - 1)) << 20;
+        }
+        else if(unit == 'G')
+        {
+            return Long.parseLong(size.substring(0, size.length() - 1)) << 30;
+        }
+        return Long.parseLong(size);
+    }
+
+    /**
+     * Reads the data caches of the host from /sys/devices/system/cpu, from
+     * the smallest level up. Instruction caches are left out.
+     *
+     * @return The cache levels, or an empty list if they could not be read.
+     */
+    public static List<CacheLevel> readCacheLevels()
+    {
+        List<CacheLevel> levels = new ArrayList<CacheLevel>();
+        for(int index = 0; ; ++index)
+        {
+            File directory = new File(CACHE_DIRECTORY, "index" + index);
+            if(!directory.isDirectory())
+            {
+                break;
+            }
+
+            try
+            {
+                String type = readLine(new File(directory, "type"));
+                if(type.equals("Instruction"))
+                {
+                    continue;
+                }
+                String name = "L" + readLine(new File(directory, "level")) + (type.equals("Data") ? "d" : "");
+                levels.add(new CacheLevel(name, parseSize(readLine(new File(directory, "size")))));
+            }
+            catch(IOException ex)
+            {
+                // skip a level that cannot be read
+            }
+            catch(NumberFormatException ex)
+            {
+                // skip a level that cannot be read
+            }
+        }
+
+        return levels;
+    }
+
+    /**
+     * Names the smallest cache level that holds the given number of bytes.
+     *
+     * @param levels The cache levels, from the smallest up.
+     * @param bytes The size of the working set in bytes.
+     * @return The name of the level, or DRAM if no level holds it.
+     */
+    private static String levelFor(List<CacheLevel> levels, long bytes)
+    {
+        for(CacheLevel level : levels)
+        {
+            if(bytes <= level.getBytes())
+            {
+                return level.getName();
+            }
+        }
+        return "DRAM";
+    }
+
+    /**
+     * Builds the sizes to sweep, in elements: STEPS_PER_OCTAVE sizes between
+     * each doubling from MIN_BYTES up to maxBytes.
+     *
+     * @param maxBytes The largest size in bytes.
+     * @return The sizes in elements, from the smallest up.
+     */
+    private static List<Integer> sweepSizes(long maxBytes)
+    {
+        List<Integer> sizes = new ArrayList<Integer>();
+        for(int step = 0; ; ++step)
+        {
+            long bytes = Math.round(MIN_BYTES * Math.pow(2, (double) step / STEPS_PER_OCTAVE));
+            if(bytes > maxBytes)
+            {
+                break;
+            }
+            int elements = (int) Math.min(bytes / 4, Integer.MAX_VALUE - 8);
+            if(sizes.isEmpty() || elements != sizes.get(sizes.size() - 1))
+            {
+                sizes.add(elements);
+            }
+        }
+        return sizes;
+    }
+
+    /**
+     * Times copying the first work.length elements of input into work, which
+     * reads and writes every element once and so bounds how fast any sort can
+     * be.
+     *
+     * @param input The source array.
+     * @param work The destination array.
+     * @param runs The number of copies to time.
+     * @return The fastest copy in nanoseconds.
+     */
+    private static long timeCopy(int[] input, int[] work, int runs)
+    {
+        long fastest = Long.MAX_VALUE;
+        for(int run = 0; run < runs; ++run)
+        {
+            long startTime = System.nanoTime();
+            System.arraycopy(input, 0, work, 0, work.length);
+            long endTime = System.nanoTime();
+            fastest = Math.min(fastest, endTime - startTime);
+        }
+        return fastest;
+    }
+
+    /**
+     * Times sorting the first work.length elements of input, restored into
+     * work before every run so that only the sort is timed.
+     *
+     * @param engine The sort to time.
+     * @param input The unsorted input.
+     * @param work The array that is sorted.
+     * @param runs The number of sorts to time.
+     * @return The fastest sort in nanoseconds.
+     */
+    private static long timeSort(Engine engine, int[] input, int[] work, int runs)
+    {
+        long fastest = Long.MAX_VALUE;
+        for(int run = 0; run < runs; ++run)
+        {
+            System.arraycopy(input, 0, work, 0, work.length);
+            long startTime = System.nanoTime();
+            engine.sort(work);
+            long endTime = System.nanoTime();
+            fastest = Math.min(fastest, endTime - startTime);
+        }
+        return fastest;
+    }
+
+    /**
+     * Writes one measurement to the result file and the console.
+     *
+     * @param writer The result file.
+     * @param levels The cache levels of the host.
+     * @param size The number of elements.
+     * @param engine The name of what was timed.
+     * @param threads The number of threads it ran on.
+     * @param nanos The fastest run in nanoseconds.
+     */
+    private static void outputPoint(PrintWriter writer, List<CacheLevel> levels, int size, String engine, int threads, long nanos)
+    {
+        long bytes = 4L * size;
+        double nsPerElement = (double) nanos / size;
+        writer.println(bytes + "," + size + "," + engine + "," + threads + "," + nsPerElement + "," + levelFor(levels, bytes));
+        System.out.println("    " + engine + (threads > 1 ? " on " + threads + " threads" : "") + ": " + decimalFormatter.format(nsPerElement) + " ns per element");
+    }
+
+    /**
+     * Runs the sweep over every SortAlgorithm and writes the results.
+     *
+     * @param resultFile The CSV file to write.
+     * @param maxBytes The largest array size to sweep, in bytes.
+     * @param seed The seed for input generation.
+     * @throws IOException If the result file could not be written.
+     */
+    public static void run(String resultFile, long maxBytes, long seed) throws IOException
+    {
+        run(resultFile, maxBytes, seed, sortAlgorithmEngines());
+    }
+
+    /**
+     * Runs the sweep over the given engines and writes the results.
+     *
+     * @param resultFile The CSV file to write.
+     * @param maxBytes The largest array size to sweep, in bytes.
+     * @param seed The seed for input generation.
+     * @param engines The engines to time at every size.
+     * @throws IOException If the result file could not be written.
+     */
+    public static void run(String resultFile, long maxBytes, long seed, List<Engine> engines) throws IOException
+    {
+        // leave room in the heap for the input and the work array
+        maxBytes = Math.min(maxBytes, Runtime.getRuntime().maxMemory() / 5 * 2);
+        List<Integer> sizes = sweepSizes(maxBytes);
+        List<CacheLevel> levels = readCacheLevels();
+        int largest = sizes.get(sizes.size() - 1);
+
+        // every size sorts a prefix of one random input, copied into an array of just that size before it is timed
+        int[] input = new ArrayGenerator(seed, Runtime.getRuntime().availableProcessors()).generate(Distribution.RANDOM, largest, Integer.MAX_VALUE);
+
+        PrintWriter writer = new PrintWriter(new FileWriter(resultFile));
+        try
+        {
+            for(CacheLevel level : levels)
+            {
+                writer.println("# " + level.getName() + " " + level.getBytes() + " bytes");
+                System.out.println(level.getName() + " cache: " + formatter.format(level.getBytes()) + " bytes");
+            }
+            writer.println("bytes,elements,engine,threads,nsPerElement,level");
+
+            int[] work = null;
+
+            for(int size : sizes)
+            {
+                int runs = (int) Math.max(MIN_RUNS, ELEMENTS_PER_POINT / size);
+                System.out.println("Array of " + formatter.format(4L * size) + " bytes (" + formatter.format(size) + " elements, fits in "
+                                   + levelFor(levels, 4L * size) + ")");
+
+                // drop the previous size's array first, so the heap never holds two of them alongside the input
+                work = null;
+                work = new int[size];
+
+                long copyTime = timeCopy(input, work, runs);
+                outputPoint(writer, levels, size, "ARRAYCOPY", 1, copyTime);
+                System.out.println("    Bandwidth: " + decimalFormatter.format(8.0 * size / copyTime) + " GB/s");
+
+                for(Engine engine : engines)
+                {
+                    if(size > engine.getMaxElements())
+                    {
+                        continue;
+                    }
+                    outputPoint(writer, levels, size, engine.getName(), engine.getThreads(), timeSort(engine, input, work, runs));
+                }
+                writer.flush();
+            }
+        }
+        finally
+        {
+            writer.close();
+        }
+    }
+
+    /**
+     * Runs the sweep.
+     *
+     * @param args The result file, the largest array size in bytes and the seed; all are optional.
+     * @throws IOException If the result file could not be written.
+     */
+    public static void main(String[] args) throws IOException
+    {
+        String resultFile = args.length > 0 ? args[0] : DEFAULT_RESULT_FILE;
+        long maxBytes = args.length > 1 ? Long.parseLong(args[1]) : MAX_BYTES;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : System.nanoTime();
+
+        run(resultFile, maxBytes, seed);
+    }
+}
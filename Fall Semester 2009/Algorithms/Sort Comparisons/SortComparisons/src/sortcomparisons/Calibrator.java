@@ -0,0 +1,175 @@
+package sortcomparisons;
+
+import java.io.IOException;
+import java.text.DecimalFormat;
+import java.text.NumberFormat;
+import java.util.SplittableRandom;
+
+/**
+ * Measures on the current host the crossover points that
+ * Benchmark.compareInsertionWithQuick leaves for a person to read off, and
+ * saves them to the tuning file so every engine picks them up at startup:
+ *
+ * insertion.cutoff - the largest segment InsertionSort sorts faster than
+ *                    QuickSort, used by BatchSort
+ * counting.range.factor - how many times larger than the array maxValue may
+ *                         be while counting still beats the three-way
+ *                         partition, used by QuickSort.sortUnique
+ *
+ * The parallel task granularity of Project6 is measured separately by
+ * proj6.GranularityCalibrator, since it needs the parallel engine.
+ *
+ * Usage: java sortcomparisons.Calibrator
+ *
+ * @author Alex Laird
+ * @version 1.0
+ */
+public class Calibrator
+{
+    // object declarations
+    private static final NumberFormat formatter = new DecimalFormat("###,###");
+    private static final InsertionSort insertionSort = new InsertionSort();
+    private static final QuickSort quickSort = new QuickSort();
+
+    // the segment sizes tried for the insertion cutoff
+    private static final int[] SEGMENT_SIZES = {4, 8, 12, 16, 24, 32, 48, 64, 96, 128, 192, 256, 384, 512};
+    // the multiples of the array length tried as maxValue for the counting threshold
+    private static final int[] RANGE_FACTORS = {1, 2, 4, 8, 16, 32, 64, 128};
+    // the number of elements sorted in every trial
+    private static final int ELEMENTS_PER_TRIAL = 1 << 18;
+    // the number of trials of each measurement; the fastest is kept, and the first ones double as warmup
+    private static final int TRIALS = 7;
+
+    /**
+     * Times sorting every segment of the input with InsertionSort or QuickSort,
+     * keeping the fastest of several trials.
+     *
+     * @param input The segments to sort.
+     * @param work The array to sort, refreshed from input before each trial.
+     * @param segmentSize The size of every segment.
+     * @param insertion True to time InsertionSort, false to time QuickSort.
+     * @return The fastest time in nanoseconds.
+     */
+    private static long timeSegments(int[] input, int[] work, int segmentSize, boolean insertion)
+    {
+        long best = Long.MAX_VALUE;
+        for(int trial = 0; trial < TRIALS; ++trial)
+        {
+            System.arraycopy(input, 0, work, 0, input.length);
+            long startTime = System.nanoTime();
+            for(int low = 0; low + segmentSize <= work.length; low += segmentSize)
+            {
+                if(insertion)
+                {
+                    insertionSort.sort(work, low, low + segmentSize - 1);
+                }
+                else
+                {
+                    quickSort.sortRandomizedPartitionUsingWhile(work, low, low + segmentSize - 1);
+                }
+            }
+            best = Math.min(best, System.nanoTime() - startTime);
+        }
+
+        return best;
+    }
+
+    /**
+     * Finds the largest segment size at which InsertionSort is still faster
+     * than QuickSort, stopping at the first size where it loses.
+     *
+     * @param random The generator for the input.
+     * @return The insertion cutoff.
+     */
+    public static int measureInsertionCutoff(SplittableRandom random)
+    {
+        int[] input = new int[ELEMENTS_PER_TRIAL];
+        int[] work = new int[ELEMENTS_PER_TRIAL];
+        for(int i = 0; i < input.length; ++i)
+        {
+            input[i] = random.nextInt(Integer.MAX_VALUE);
+        }
+
+        int cutoff = SEGMENT_SIZES[0];
+        for(int size : SEGMENT_SIZES)
+        {
+            long insertionTime = timeSegments(input, work, size, true);
+            long quickTime = timeSegments(input, work, size, false);
+            System.out.println("Segments of " + size + ": InsertionSort " + formatter.format(insertionTime) + " ns, QuickSort " + formatter.format(quickTime) + " ns");
+            if(insertionTime > quickTime)
+            {
+                break;
+            }
+            cutoff = size;
+        }
+
+        return cutoff;
+    }
+
+    /**
+     * Finds the largest multiple of the array length that maxValue can be
+     * while counting is still faster than the three-way partition in
+     * sortUnique, stopping at the first multiple where it loses.
+     *
+     * @param random The generator for the input.
+     * @return The counting range factor, or 0 if counting never wins.
+     */
+    public static int measureCountingRangeFactor(SplittableRandom random)
+    {
+        int[] input = new int[ELEMENTS_PER_TRIAL];
+        int[] work = new int[ELEMENTS_PER_TRIAL];
+
+        int factor = 0;
+        for(int rangeFactor : RANGE_FACTORS)
+        {
+            int maxValue = ELEMENTS_PER_TRIAL * rangeFactor;
+            for(int i = 0; i < input.length; ++i)
+            {
+                input[i] = random.nextInt(maxValue);
+            }
+
+            long countingTime = Long.MAX_VALUE;
+            long partitionTime = Long.MAX_VALUE;
+            for(int trial = 0; trial < TRIALS; ++trial)
+            {
+                System.arraycopy(input, 0, work, 0, input.length);
+                long startTime = System.nanoTime();
+                quickSort.sortUniqueCounting(work, maxValue, null);
+                countingTime = Math.min(countingTime, System.nanoTime() - startTime);
+
+                System.arraycopy(input, 0, work, 0, input.length);
+                startTime = System.nanoTime();
+                quickSort.sortUnique(work);
+                partitionTime = Math.min(partitionTime, System.nanoTime() - startTime);
+            }
+            System.out.println("maxValue " + rangeFactor + "x length: counting " + formatter.format(countingTime) + " ns, three-way partition " + formatter.format(partitionTime) + " ns");
+            if(countingTime > partitionTime)
+            {
+                break;
+            }
+            factor = rangeFactor;
+        }
+
+        return factor;
+    }
+
+    /**
+     * Measures every threshold and saves them to the tuning file.
+     *
+     * @param args The command-line arguments, which are unused in this program.
+     * @throws IOException If the tuning file could not be written.
+     */
+    public static void main(String[] args) throws IOException
+    {
+        SplittableRandom random = new SplittableRandom();
+
+        int insertionCutoff = measureInsertionCutoff(random);
+        System.out.println("Insertion cutoff: " + insertionCutoff + "\n");
+        int countingRangeFactor = measureCountingRangeFactor(random);
+        System.out.println("Counting range factor: " + countingRangeFactor + "\n");
+
+        Tuning.save(Tuning.INSERTION_CUTOFF, insertionCutoff);
+        Tuning.save(Tuning.COUNTING_RANGE_FACTOR, countingRangeFactor);
+        System.out.println("Saved to " + Tuning.getFileName());
+    }
+}
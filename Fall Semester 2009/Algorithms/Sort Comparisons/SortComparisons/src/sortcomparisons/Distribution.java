@@ -0,0 +1,32 @@
+package sortcomparisons;
+
+/**
+ * The shapes of input data that ArrayGenerator can produce. Unless noted
+ * otherwise, elements are between 0 (inclusive) and maxValue.
+ *
+ * @author Alex Laird
+ * @version 1.0
+ */
+public enum Distribution
+{
+    // uniform pseudo-random numbers
+    RANDOM,
+    // uniform pseudo-random numbers in ascending order
+    SORTED,
+    // uniform pseudo-random numbers in descending order
+    REVERSED,
+    // rising to maxValue at the middle of the array and falling back to 0
+    ORGAN_PIPE,
+    // several ascending runs, each rising from 0 to maxValue
+    SAWTOOTH,
+    // skewed toward small values, with the chance of value v roughly proportional to 1 / (v + 1)
+    ZIPF,
+    // normally distributed around maxValue / 2
+    GAUSSIAN,
+    // uniform pseudo-random choices from only a handful of distinct values
+    FEW_UNIQUE,
+    // sorted, except that every element is at most k positions from its sorted position
+    K_SORTED,
+    // McIlroy's adversary against the last-element pivot partition; elements are between 0 and size
+    ANTI_QUICKSORT
+}
@@ -15,18 +15,32 @@ public class InsertionSort
      */
     public void sort(int[] array)
     {
-        for(int j = 0; j < array.length; ++j)
+        sort(array, 0, array.length - 1);
+    }
+
+    /**
+     * Performs a looping InsertionSort algorithm on an array from low to high.
+     *
+     * @param array The array to be sorted.
+     * @param low The lowest index.
+     * @param high The highest index.
+     */
+    public void sort(int[] array, int low, int high)
+    {
+        for(int j = low; j <= high; ++j)
         {
             int key = array[j];
             int i = j - 1;
 
-            while(i >= 0 && array[i] > key)
+            while(i >= low && OperationCounter.compare(array[i] > key))
             {
                 array[i + 1] = array[i];
+                OperationCounter.move(1);
                 i = i - 1;
             }
 
             array[i + 1] = key;
+            OperationCounter.move(1);
         }
     }
 }
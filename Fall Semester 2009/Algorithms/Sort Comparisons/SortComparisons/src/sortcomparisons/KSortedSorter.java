@@ -0,0 +1,163 @@
+package sortcomparisons;
+
+/**
+ * Sorts input in which every element is at most k positions away from its
+ * sorted position. A sliding window of k + 1 elements is kept in a min-heap;
+ * once the window is full, its smallest element can be in no other place
+ * than the next output position, so it is emitted as each new element
+ * arrives. This takes O(n log k) time and O(k) memory, and the input may be
+ * streamed in one element at a time.
+ *
+ * @author Alex Laird
+ * @version 1.0
+ */
+public class KSortedSorter
+{
+    /**
+     * Receives elements from the sorter in ascending order.
+     */
+    public interface Output
+    {
+        /**
+         * Called with the next element in sorted order.
+         *
+         * @param value The next element.
+         */
+        void emit(int value);
+    }
+
+    // the min-heap holding the sliding window
+    private final int[] heap;
+    // the number of elements currently in the heap
+    private int count = 0;
+    // where sorted elements are sent
+    private final Output output;
+
+    /**
+     * Constructs a sorter for input that is at most k positions out of order.
+     *
+     * @param k The greatest distance any element is from its sorted position.
+     * @param output Where sorted elements are sent.
+     */
+    public KSortedSorter(int k, Output output)
+    {
+        this.heap = new int[k + 1];
+        this.output = output;
+    }
+
+    /**
+     * Moves the element at index i up the heap until its parent is no larger.
+     *
+     * @param i The index of the element to move.
+     */
+    private void siftUp(int i)
+    {
+        int value = heap[i];
+        while(i > 0)
+        {
+            int parent = (i - 1) / 2;
+            if(heap[parent] <= value)
+            {
+                break;
+            }
+            heap[i] = heap[parent];
+            i = parent;
+        }
+        heap[i] = value;
+    }
+
+    /**
+     * Moves the element at index i down the heap until neither child is smaller.
+     *
+     * @param i The index of the element to move.
+     */
+    private void siftDown(int i)
+    {
+        int value = heap[i];
+        int half = count / 2;
+        while(i < half)
+        {
+            // pick the smaller of the two children
+            int child = 2 * i + 1;
+            if(child + 1 < count && heap[child + 1] < heap[child])
+            {
+                ++child;
+            }
+            if(value <= heap[child])
+            {
+                break;
+            }
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = value;
+    }
+
+    /**
+     * Adds the next element of the input. If the window is full, the smallest
+     * element of the window is emitted.
+     *
+     * @param value The next element of the input.
+     */
+    public void add(int value)
+    {
+        if(count < heap.length)
+        {
+            heap[count] = value;
+            siftUp(count++);
+        }
+        // the new element is the smallest in the window, so it goes straight out
+        else if(value <= heap[0])
+        {
+            output.emit(value);
+        }
+        else
+        {
+            output.emit(heap[0]);
+            heap[0] = value;
+            siftDown(0);
+        }
+    }
+
+    /**
+     * Emits every element remaining in the window in sorted order. Must be
+     * called once the input is exhausted; the sorter may then be reused.
+     */
+    public void flush()
+    {
+        while(count > 0)
+        {
+            output.emit(heap[0]);
+            heap[0] = heap[--count];
+            siftDown(0);
+        }
+    }
+
+    /**
+     * Sorts an array in place where every element is at most k positions away
+     * from its sorted position. Only the O(k) window is allocated; sorted
+     * elements are written behind the read position, so they never overwrite
+     * unread input.
+     *
+     * @param array The array to be sorted.
+     * @param k The greatest distance any element is from its sorted position.
+     */
+    public static void sort(final int[] array, int k)
+    {
+        // where the next sorted element is written
+        final int[] write = new int[1];
+        KSortedSorter sorter = new KSortedSorter(k, new Output()
+        {
+            public void emit(int value)
+            {
+                array[write[0]++] = value;
+            }
+        });
+
+        for(int i = 0; i < array.length; ++i)
+        {
+            sorter.add(array[i]);
+        }
+        sorter.flush();
+    }
+}
@@ -0,0 +1,267 @@
+package sortcomparisons;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the basic operations performed by the sorts: element comparisons,
+ * swaps, element moves (a swap is three moves), the maximum recursion depth,
+ * and a histogram of how evenly each partition split its range.
+ *
+ * Counting is off unless the JVM is started with -Dsortcomparisons.instrument=true.
+ * Every method returns immediately when ENABLED is false, and since ENABLED is
+ * a static final constant the JIT removes the calls entirely once they are
+ * inlined, so the sorts run at full speed when counting is off. Counters are
+ * LongAdders, so sorts running on several threads at once may share them.
+ *
+ * @author Alex Laird
+ * @version 1.0
+ */
+public class OperationCounter
+{
+    // true if operations are being counted
+    public static final boolean ENABLED = Boolean.getBoolean("sortcomparisons.instrument");
+    // the number of buckets in the partition balance histogram, each covering an equal slice of [0, 0.5]
+    public static final int BALANCE_BUCKETS = 10;
+    // ranges smaller than this are left out of the histogram, since a tiny range can hardly split evenly
+    public static final int BALANCE_MIN_SIZE = 32;
+
+    // the operation counters
+    private static final LongAdder comparisons = new LongAdder();
+    private static final LongAdder swaps = new LongAdder();
+    private static final LongAdder moves = new LongAdder();
+    private static final LongAdder partitions = new LongAdder();
+    private static final LongAccumulator maxDepth = new LongAccumulator(Math::max, 0);
+    private static final LongAdder[] balance = new LongAdder[BALANCE_BUCKETS];
+    // the current recursion depth of each thread
+    private static final ThreadLocal<int[]> depth = new ThreadLocal<int[]>()
+    {
+        @Override
+        protected int[] initialValue()
+        {
+            return new int[1];
+        }
+    };
+
+    static
+    {
+        for(int i = 0; i < BALANCE_BUCKETS; ++i)
+        {
+            balance[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Counts a single comparison between elements, passing its result through
+     * so that the call may wrap the comparison in place.
+     *
+     * @param result The result of the comparison.
+     * @return The result of the comparison.
+     */
+    public static boolean compare(boolean result)
+    {
+        if(ENABLED)
+        {
+            comparisons.increment();
+        }
+        return result;
+    }
+
+    /**
+     * Counts a swap of two elements, which is also three moves.
+     */
+    public static void swap()
+    {
+        if(ENABLED)
+        {
+            swaps.increment();
+            moves.add(3);
+        }
+    }
+
+    /**
+     * Counts elements written to the array outside of a swap.
+     *
+     * @param n The number of elements moved.
+     */
+    public static void move(int n)
+    {
+        if(ENABLED)
+        {
+            moves.add(n);
+        }
+    }
+
+    /**
+     * Records entering a level of recursion on the calling thread.
+     */
+    public static void enter()
+    {
+        if(ENABLED)
+        {
+            int[] current = depth.get();
+            maxDepth.accumulate(++current[0]);
+        }
+    }
+
+    /**
+     * Records leaving a level of recursion on the calling thread.
+     */
+    public static void exit()
+    {
+        if(ENABLED)
+        {
+            --depth.get()[0];
+        }
+    }
+
+    /**
+     * Records how a partition split its range. The balance of a split is the
+     * size of the smaller side over the size of the range, from 0 (the pivot
+     * was the smallest or largest element) to 0.5 (a perfect median). Only
+     * ranges of at least BALANCE_MIN_SIZE elements enter the histogram.
+     *
+     * @param low The lowest index of the partitioned range.
+     * @param mid The final index of the pivot.
+     * @param high The highest index of the partitioned range.
+     */
+    public static void split(int low, int mid, int high)
+    {
+        if(ENABLED)
+        {
+            partitions.increment();
+            if(high - low + 1 < BALANCE_MIN_SIZE)
+            {
+                return;
+            }
+            long smaller = Math.min(mid - low, high - mid);
+            int bucket = (int) (smaller * 2 * BALANCE_BUCKETS / (high - low + 1));
+            balance[Math.min(bucket, BALANCE_BUCKETS - 1)].increment();
+        }
+    }
+
+    /**
+     * Clears every counter. Threads that are still inside a sort keep their
+     * current recursion depth.
+     */
+    public static void reset()
+    {
+        comparisons.reset();
+        swaps.reset();
+        moves.reset();
+        partitions.reset();
+        maxDepth.reset();
+        for(int i = 0; i < BALANCE_BUCKETS; ++i)
+        {
+            balance[i].reset();
+        }
+    }
+
+    /**
+     * Retrieve the number of comparisons counted.
+     *
+     * @return The number of comparisons counted.
+     */
+    public static long getComparisons()
+    {
+        return comparisons.sum();
+    }
+
+    /**
+     * Retrieve the number of swaps counted.
+     *
+     * @return The number of swaps counted.
+     */
+    public static long getSwaps()
+    {
+        return swaps.sum();
+    }
+
+    /**
+     * Retrieve the number of element moves counted, including those made by swaps.
+     *
+     * @return The number of element moves counted.
+     */
+    public static long getMoves()
+    {
+        return moves.sum();
+    }
+
+    /**
+     * Retrieve the deepest level of recursion reached by any thread.
+     *
+     * @return The maximum recursion depth.
+     */
+    public static long getMaxDepth()
+    {
+        return maxDepth.get();
+    }
+
+    /**
+     * Retrieve the number of partitions recorded.
+     *
+     * @return The number of partitions recorded.
+     */
+    public static long getPartitions()
+    {
+        return partitions.sum();
+    }
+
+    /**
+     * Retrieve the number of partitions whose balance fell in each bucket.
+     * Bucket i holds splits with balance between i / (2 * BALANCE_BUCKETS)
+     * and (i + 1) / (2 * BALANCE_BUCKETS).
+     *
+     * @return The partition balance histogram.
+     */
+    public static long[] getBalanceHistogram()
+    {
+        long[] histogram = new long[BALANCE_BUCKETS];
+        for(int i = 0; i < BALANCE_BUCKETS; ++i)
+        {
+            histogram[i] = balance[i].sum();
+        }
+        return histogram;
+    }
+
+    /**
+     * Retrieve the fraction of histogrammed partitions that put less than a
+     * twentieth of their range on the smaller side, which signals a
+     * degenerate pivot.
+     *
+     * @return The fraction of degenerate partitions, or 0 if none were recorded.
+     */
+    public static double getDegenerateRatio()
+    {
+        long total = 0;
+        for(int i = 0; i < BALANCE_BUCKETS; ++i)
+        {
+            total += balance[i].sum();
+        }
+        return total == 0 ? 0 : (double) balance[0].sum() / total;
+    }
+
+    /**
+     * Describes the counters in a form suitable for output.
+     *
+     * @return The counters, one per line.
+     */
+    public static String report()
+    {
+        StringBuilder builder = new StringBuilder();
+        builder.append("Comparisons: ").append(getComparisons()).append("\n");
+        builder.append("Swaps: ").append(getSwaps()).append("\n");
+        builder.append("Moves: ").append(getMoves()).append("\n");
+        builder.append("Max Recursion Depth: ").append(getMaxDepth()).append("\n");
+        builder.append("Partitions: ").append(getPartitions()).append("\n");
+        builder.append("Partition Balance:");
+        long[] histogram = getBalanceHistogram();
+        for(int i = 0; i < BALANCE_BUCKETS; ++i)
+        {
+            builder.append(" ").append(histogram[i]);
+        }
+        builder.append("\n");
+        builder.append("Degenerate Partitions: ").append(String.format("%.1f%%", getDegenerateRatio() * 100));
+        return builder.toString();
+    }
+}
@@ -0,0 +1,89 @@
+package sortcomparisons;
+
+/**
+ * Describes how close a range of an array already is to sorted order, so a
+ * caller can decide which sort to use before sorting it.
+ *
+ * @author Alex Laird
+ * @version 1.0
+ */
+public class Presortedness
+{
+    // the number of elements measured
+    private final int length;
+    // the number of maximal non-descending runs
+    private final int runs;
+    // the estimated number of pairs of elements that are out of order
+    private final long inversions;
+
+    /**
+     * Constructs the measurement of a range of an array.
+     *
+     * @param length The number of elements measured.
+     * @param runs The number of maximal non-descending runs.
+     * @param inversions The estimated number of pairs of elements that are out of order.
+     */
+    public Presortedness(int length, int runs, long inversions)
+    {
+        this.length = length;
+        this.runs = runs;
+        this.inversions = inversions;
+    }
+
+    /**
+     * Retrieve the number of elements measured.
+     *
+     * @return The number of elements measured.
+     */
+    public int getLength()
+    {
+        return length;
+    }
+
+    /**
+     * Retrieve the number of maximal non-descending runs. A sorted range has
+     * one run, and a strictly descending range has one run per element.
+     *
+     * @return The number of runs.
+     */
+    public int getRuns()
+    {
+        return runs;
+    }
+
+    /**
+     * Retrieve the estimated number of pairs of elements that are out of
+     * order, which is the number of swaps InsertionSort would make.
+     *
+     * @return The estimated number of inversions.
+     */
+    public long getInversions()
+    {
+        return inversions;
+    }
+
+    /**
+     * Retrieve the estimated fraction of all pairs of elements that are out
+     * of order: 0 for a sorted range, about 0.5 for a random range and 1 for
+     * a strictly descending range.
+     *
+     * @return The estimated fraction of pairs that are inversions.
+     */
+    public double getInversionRatio()
+    {
+        long pairs = (long) length * (length - 1) / 2;
+
+        return pairs == 0 ? 0 : (double) inversions / pairs;
+    }
+
+    /**
+     * Outputs the measurement in a readable form.
+     *
+     * @return The measurement as a string.
+     */
+    @Override
+    public String toString()
+    {
+        return "length=" + length + ", runs=" + runs + ", inversions=" + inversions;
+    }
+}
@@ -0,0 +1,231 @@
+package sortcomparisons;
+
+import java.util.Random;
+
+/**
+ * A mergeable sketch for approximate quantiles of a stream of integers that
+ * is too large to keep in memory, in the style of the KLL sketch. Elements
+ * enter the bottom level of a stack of compactors. When a level fills up, it
+ * is sorted using QuickSort and every other element (starting at a random
+ * offset) is promoted to the level above, where each element stands in for
+ * twice as many elements of the stream. Memory stays O(k log(n / k)).
+ *
+ * This version keeps the same capacity k at every level, which is simpler
+ * than the geometrically shrinking capacities of full KLL at the cost of some
+ * extra memory for the same accuracy.
+ *
+ * @author Alex Laird
+ * @version 1.0
+ */
+public class QuantileSketch
+{
+    // object declarations
+    private static final Random random = new Random();
+    private static final QuickSort quickSort = new QuickSort();
+
+    // the number of elements a level holds before it is compacted
+    private final int k;
+    // the elements held at each level; an element at level i has weight 2^i
+    private int[][] levels = new int[1][];
+    // the number of elements held at each level
+    private int[] sizes = new int[1];
+    // the number of elements seen by the sketch
+    private long count = 0;
+
+    /**
+     * Constructs an empty sketch. Larger values of k give more accurate
+     * quantiles at the cost of more memory; the rank error is roughly
+     * proportional to 1 / k.
+     *
+     * @param k The number of elements a level holds before it is compacted, which must be even.
+     */
+    public QuantileSketch(int k)
+    {
+        this.k = k;
+        levels[0] = new int[k];
+    }
+
+    /**
+     * Makes sure the given level exists.
+     *
+     * @param level The level that must exist.
+     */
+    private void ensureLevel(int level)
+    {
+        if(level < levels.length)
+        {
+            return;
+        }
+
+        int[][] newLevels = new int[level + 1][];
+        int[] newSizes = new int[level + 1];
+        System.arraycopy(levels, 0, newLevels, 0, levels.length);
+        System.arraycopy(sizes, 0, newSizes, 0, sizes.length);
+        for(int i = levels.length; i <= level; ++i)
+        {
+            newLevels[i] = new int[k];
+        }
+        levels = newLevels;
+        sizes = newSizes;
+    }
+
+    /**
+     * Appends a value to the given level, growing the level if it is full.
+     *
+     * @param level The level to append to.
+     * @param value The value to append.
+     */
+    private void append(int level, int value)
+    {
+        if(sizes[level] == levels[level].length)
+        {
+            int[] newLevel = new int[levels[level].length * 2];
+            System.arraycopy(levels[level], 0, newLevel, 0, sizes[level]);
+            levels[level] = newLevel;
+        }
+        levels[level][sizes[level]++] = value;
+    }
+
+    /**
+     * Compacts every level, from the bottom up, that holds k or more elements.
+     */
+    private void compress()
+    {
+        for(int level = 0; level < levels.length; ++level)
+        {
+            if(sizes[level] >= k)
+            {
+                compact(level);
+            }
+        }
+    }
+
+    /**
+     * Sorts the given level and promotes every other element to the level
+     * above. If the level holds an odd number of elements, its largest element
+     * stays behind so that the total weight is unchanged.
+     *
+     * @param level The level to compact.
+     */
+    private void compact(int level)
+    {
+        ensureLevel(level + 1);
+        int[] buffer = levels[level];
+        int size = sizes[level];
+        quickSort.sortRandomizedPartitionUsingWhile(buffer, 0, size - 1);
+
+        int pairs = size / 2;
+        int offset = random.nextInt(2);
+        for(int i = 0; i < pairs; ++i)
+        {
+            append(level + 1, buffer[2 * i + offset]);
+        }
+
+        if(size % 2 == 1)
+        {
+            buffer[0] = buffer[size - 1];
+            sizes[level] = 1;
+        }
+        else
+        {
+            sizes[level] = 0;
+        }
+    }
+
+    /**
+     * Adds an element of the stream to the sketch.
+     *
+     * @param value The element to add.
+     */
+    public void update(int value)
+    {
+        levels[0][sizes[0]++] = value;
+        ++count;
+
+        if(sizes[0] == k)
+        {
+            compress();
+        }
+    }
+
+    /**
+     * Merges another sketch into this one, after which this sketch summarizes
+     * both streams. The other sketch is left unchanged.
+     *
+     * @param other The sketch to merge into this one.
+     */
+    public void merge(QuantileSketch other)
+    {
+        ensureLevel(other.levels.length - 1);
+        for(int level = 0; level < other.levels.length; ++level)
+        {
+            for(int i = 0; i < other.sizes[level]; ++i)
+            {
+                append(level, other.levels[level][i]);
+            }
+        }
+        count += other.count;
+
+        compress();
+    }
+
+    /**
+     * Estimates the value at the given quantile of every element seen so far.
+     *
+     * @param q The quantile, between 0 (the smallest element) and 1 (the largest element).
+     * @return The estimated value at that quantile.
+     */
+    public int quantile(double q)
+    {
+        if(count == 0)
+        {
+            throw new IllegalStateException("The sketch is empty.");
+        }
+
+        // sort every level so they can be walked together in order
+        long totalWeight = 0;
+        for(int level = 0; level < levels.length; ++level)
+        {
+            quickSort.sortRandomizedPartitionUsingWhile(levels[level], 0, sizes[level] - 1);
+            totalWeight += (long) sizes[level] << level;
+        }
+
+        // walk the levels in order until the accumulated weight passes the target rank
+        long target = (long) (q * totalWeight);
+        int[] positions = new int[levels.length];
+        long weight = 0;
+        int value = 0;
+        while(true)
+        {
+            int smallest = -1;
+            for(int level = 0; level < levels.length; ++level)
+            {
+                if(positions[level] < sizes[level] && (smallest == -1 || levels[level][positions[level]] < levels[smallest][positions[smallest]]))
+                {
+                    smallest = level;
+                }
+            }
+            if(smallest == -1)
+            {
+                return value;
+            }
+
+            value = levels[smallest][positions[smallest]++];
+            weight += 1L << smallest;
+            if(weight > target)
+            {
+                return value;
+            }
+        }
+    }
+
+    /**
+     * Retrieve the number of elements seen by the sketch.
+     *
+     * @return The number of elements seen by the sketch.
+     */
+    public long getCount()
+    {
+        return count;
+    }
+}
@@ -1,6 +1,6 @@
 package sortcomparisons;
 
-import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * Handles QuickSort and all of its methods.
@@ -10,8 +10,10 @@ import java.util.Random;
  */
 public class QuickSort
 {
-    // object pointer delcarations
-    private static final Random random = new Random();
+    // the counting path is used when maxValue is at most this many times the array length, unless tuned for this host
+    private static final int COUNTING_RANGE_FACTOR = Tuning.get(Tuning.COUNTING_RANGE_FACTOR, 2);
+    // the number of random pairs compared when estimating inversions
+    private static final int INVERSION_SAMPLES = 1024;
 
     /**
      * Swaps the two indeces in the array given.
@@ -23,6 +25,7 @@ public class QuickSort
     private void swap(int[] array, int first, int second)
     {
         // swap array[i] and array[j]
+        OperationCounter.swap();
         int temp = array[first];
         array[first] = array[second];
         array[second] = temp;
@@ -47,7 +50,7 @@ public class QuickSort
         for(int j = low; j < high; ++j)
         {
             // if the value at the current index in the array is smaller than the pivot, swap them
-            if(array[j] <= pivot)
+            if(OperationCounter.compare(array[j] <= pivot))
             {
                 i = ++i;
 
@@ -83,12 +86,12 @@ public class QuickSort
         while(left < right)
         {
             // increment the low pointer until you meet the pivot
-            while(left <= right && array[left] <= pivot)
+            while(left <= right && OperationCounter.compare(array[left] <= pivot))
             {
                 ++left;
             }
             // decrement the high pointer until you meet the pivot
-            while(left <= right && array[right] > pivot)
+            while(left <= right && OperationCounter.compare(array[right] > pivot))
             {
                 --right;
             }
@@ -103,10 +106,116 @@ public class QuickSort
         
         array[low] = array[right];
         array[right] = pivot;
+        OperationCounter.move(2);
         
         return right;
     }
 
+    /**
+     * Performs a three-way QuickSort on an array from low to high, compacting
+     * each distinct value into the array starting at write as it goes. Since
+     * values are emitted in sorted order and write never passes low, the
+     * compacted output never overwrites elements that are still unsorted.
+     *
+     * @param array The array to be sorted.
+     * @param low The lowest index.
+     * @param high The highest index.
+     * @param write The next index to write a distinct value to.
+     * @param counts If not null, the number of occurrences of each distinct value is stored at its write index.
+     * @return The next index to write a distinct value to after this range is compacted.
+     */
+    private int sortUniqueThreeWay(int[] array, int low, int high, int write, int[] counts)
+    {
+        while(low <= high)
+        {
+            // swap a random element into low to use as the pivot
+            swap(array, low, ThreadLocalRandom.current().nextInt(high - low + 1) + low);
+            int pivot = array[low];
+            // elements in [low, lt) are less than, [lt, i) are equal to, and (gt, high] are greater than the pivot
+            int lt = low;
+            int gt = high;
+            int i = low + 1;
+
+            while(i <= gt)
+            {
+                if(array[i] < pivot)
+                {
+                    swap(array, lt++, i++);
+                }
+                else if(array[i] > pivot)
+                {
+                    swap(array, i, gt--);
+                }
+                else
+                {
+                    ++i;
+                }
+            }
+
+            // recursively compact the lower portion
+            write = sortUniqueThreeWay(array, low, lt - 1, write, counts);
+
+            // the equal portion collapses to a single value
+            if(counts != null)
+            {
+                counts[write] = gt - lt + 1;
+            }
+            array[write++] = pivot;
+
+            // loop on the upper portion rather than recursing
+            low = gt + 1;
+        }
+
+        return write;
+    }
+
+    /**
+     * Sorts the array using counting over the range [0, maxValue), compacting
+     * each distinct value into the front of the array.
+     *
+     * @param array The array to be sorted.
+     * @param maxValue Every element must be between 0 (inclusive) and maxValue.
+     * @param counts If not null, the number of occurrences of each distinct value is stored at its index.
+     * @return The number of distinct values.
+     */
+    int sortUniqueCounting(int[] array, int maxValue, int[] counts)
+    {
+        int[] occurrences = new int[maxValue];
+        for(int i = 0; i < array.length; ++i)
+        {
+            ++occurrences[array[i]];
+        }
+
+        int write = 0;
+        for(int value = 0; value < maxValue; ++value)
+        {
+            if(occurrences[value] > 0)
+            {
+                if(counts != null)
+                {
+                    counts[write] = occurrences[value];
+                }
+                array[write++] = value;
+            }
+        }
+
+        return write;
+    }
+
+    /**
+     * Decides whether the counting path is cheaper than a three-way QuickSort
+     * for an array whose elements are between 0 and maxValue.
+     *
+     * @param array The array to be sorted.
+     * @param maxValue Every element is between 0 (inclusive) and maxValue.
+     * @return True if counting should be used, false otherwise.
+     */
+    private boolean useCounting(int[] array, int maxValue)
+    {
+        // in long arithmetic, since a large tuned factor or a huge array would overflow an int
+        return maxValue > 0 && maxValue <= (long) array.length * COUNTING_RANGE_FACTOR;
+    }
+
     /**
      * Generates the random partition location and calls the partition method.
      * Uses a for loop to evaluate the partition.
@@ -119,7 +228,7 @@ public class QuickSort
     private int randomizedPartitionUsingFor(int[] array, int low, int high)
     {
         // some random int between low and high
-        int i = random.nextInt(high - low + 1) + low;
+        int i = ThreadLocalRandom.current().nextInt(high - low + 1) + low;
 
         // swap array[high] and array[i]
         swap(array, high, i);
@@ -139,7 +248,7 @@ public class QuickSort
     private int randomizedPartitionUsingWhile(int[] array, int low, int high)
     {
         // some random int between low and high
-        int i = random.nextInt(high - low + 1) + low;
+        int i = ThreadLocalRandom.current().nextInt(high - low + 1) + low;
 
         // swap array[high] and array[i]
         swap(array, high, i);
@@ -160,12 +269,15 @@ public class QuickSort
     {
         if(low < high)
         {
+            OperationCounter.enter();
             // randomly locate a partition point
             int mid = randomizedPartitionUsingFor(array, low, high);
+            OperationCounter.split(low, mid, high);
             // recursively sort the lower portion
             sortRandomizedPartitionUsingFor(array, low, mid - 1);
             // recursively sort the upper portion
             sortRandomizedPartitionUsingFor(array, mid + 1, high);
+            OperationCounter.exit();
         }
     }
 
@@ -182,12 +294,15 @@ public class QuickSort
     {
         if(low < high)
         {
+            OperationCounter.enter();
             // randomly locate a partition point
             int mid = randomizedPartitionUsingWhile(array, low, high);
+            OperationCounter.split(low, mid, high);
             // recursively sort the lower portion
             sortRandomizedPartitionUsingWhile(array, low, mid - 1);
             // recursively sort the upper portion
             sortRandomizedPartitionUsingWhile(array, mid + 1, high);
+            OperationCounter.exit();
         }
     }
     
@@ -203,12 +318,15 @@ public class QuickSort
     {
         if(low < high)
         {
+            OperationCounter.enter();
             // locate the most precise partition point
             int mid = partitionUsingFor(array, low, high);
+            OperationCounter.split(low, mid, high);
             // recursively sort the lower half
             sortUsingFor(array, low, mid - 1);
             // recursively sort the upper half
             sortUsingFor(array, mid + 1, high);
+            OperationCounter.exit();
         }
     }
 
@@ -224,12 +342,285 @@ public class QuickSort
     {
         if(low < high)
         {
+            OperationCounter.enter();
             // locate the most precise partition point
             int mid = partitionUsingWhile(array, low, high);
+            OperationCounter.split(low, mid, high);
             // recursively sort the lower half
             sortUsingWhile(array, low, mid - 1);
             // recursively sort the upper half
             sortUsingWhile(array, mid + 1, high);
+            OperationCounter.exit();
+        }
+    }
+
+    /**
+     * Sorts the array and removes duplicate values in a single three-way
+     * QuickSort. The distinct values are left in ascending order at the front
+     * of the array; the contents past the returned length are undefined.
+     *
+     * @param array The array to be sorted.
+     * @return The number of distinct values at the front of the array.
+     */
+    public int sortUnique(int[] array)
+    {
+        return sortUniqueThreeWay(array, 0, array.length - 1, 0, null);
+    }
+
+    /**
+     * Sorts the array and removes duplicate values. When every element is
+     * between 0 (inclusive) and a small maxValue, counting is used instead of
+     * the three-way QuickSort.
+     *
+     * @param array The array to be sorted.
+     * @param maxValue Every element must be between 0 (inclusive) and maxValue.
+     * @return The number of distinct values at the front of the array.
+     */
+    public int sortUnique(int[] array, int maxValue)
+    {
+        if(useCounting(array, maxValue))
+        {
+            return sortUniqueCounting(array, maxValue, null);
+        }
+
+        return sortUnique(array);
+    }
+
+    /**
+     * Sorts the array and counts the occurrences of each distinct value in a
+     * single three-way QuickSort.
+     *
+     * @param array The array to be sorted. Its contents are undefined afterwards.
+     * @return Two parallel arrays: the distinct values in ascending order, then the number of occurrences of each.
+     */
+    public int[][] sortedHistogram(int[] array)
+    {
+        int[] counts = new int[array.length];
+        int length = sortUniqueThreeWay(array, 0, array.length - 1, 0, counts);
+
+        return trimHistogram(array, counts, length);
+    }
+
+    /**
+     * Sorts the array and counts the occurrences of each distinct value. When
+     * every element is between 0 (inclusive) and a small maxValue, counting is
+     * used instead of the three-way QuickSort.
+     *
+     * @param array The array to be sorted. Its contents are undefined afterwards.
+     * @param maxValue Every element must be between 0 (inclusive) and maxValue.
+     * @return Two parallel arrays: the distinct values in ascending order, then the number of occurrences of each.
+     */
+    public int[][] sortedHistogram(int[] array, int maxValue)
+    {
+        if(useCounting(array, maxValue))
+        {
+            int[] counts = new int[array.length];
+            int length = sortUniqueCounting(array, maxValue, counts);
+
+            return trimHistogram(array, counts, length);
+        }
+
+        return sortedHistogram(array);
+    }
+
+    /**
+     * Copies the compacted values and counts into arrays of the exact length.
+     *
+     * @param values The compacted distinct values.
+     * @param counts The compacted counts.
+     * @param length The number of distinct values.
+     * @return Two parallel arrays: the distinct values, then the number of occurrences of each.
+     */
+    private int[][] trimHistogram(int[] values, int[] counts, int length)
+    {
+        int[] trimmedValues = new int[length];
+        int[] trimmedCounts = new int[length];
+        System.arraycopy(values, 0, trimmedValues, 0, length);
+        System.arraycopy(counts, 0, trimmedCounts, 0, length);
+
+        return new int[][] {trimmedValues, trimmedCounts};
+    }
+
+    /**
+     * Checks whether the array is in non-descending order from low to high.
+     * The loop compares four pairs per iteration and accumulates violations
+     * with bitwise operations rather than branching on each one, which keeps
+     * the loop body free of unpredictable branches.
+     *
+     * @param array The array to check.
+     * @param low The lowest index.
+     * @param high The highest index.
+     * @return True if the range is sorted, false otherwise.
+     */
+    public boolean isSorted(int[] array, int low, int high)
+    {
+        int i = low;
+
+        // compare four neighbouring pairs at a time; a pair out of order sets the sign bit of the difference
+        while(i + 4 <= high)
+        {
+            long unsorted = ((long) array[i + 1] - array[i])
+                          | ((long) array[i + 2] - array[i + 1])
+                          | ((long) array[i + 3] - array[i + 2])
+                          | ((long) array[i + 4] - array[i + 3]);
+            if(unsorted < 0)
+            {
+                return false;
+            }
+            i += 4;
+        }
+
+        for(; i < high; ++i)
+        {
+            if(array[i] > array[i + 1])
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Checks whether the array is in non-ascending order from low to high.
+     *
+     * @param array The array to check.
+     * @param low The lowest index.
+     * @param high The highest index.
+     * @return True if the range is reverse sorted, false otherwise.
+     */
+    public boolean isReverseSorted(int[] array, int low, int high)
+    {
+        for(int i = low; i < high; ++i)
+        {
+            if(array[i] < array[i + 1])
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Reverses the array in place from low to high.
+     *
+     * @param array The array to reverse.
+     * @param low The lowest index.
+     * @param high The highest index.
+     */
+    public void reverse(int[] array, int low, int high)
+    {
+        while(low < high)
+        {
+            swap(array, low++, high--);
+        }
+    }
+
+    /**
+     * Measures how close the array is to sorted from low to high. Runs are
+     * counted exactly in one pass; inversions are estimated by comparing a
+     * fixed number of random pairs and scaling up to all pairs.
+     *
+     * @param array The array to measure.
+     * @param low The lowest index.
+     * @param high The highest index.
+     * @return The presortedness of the range.
+     */
+    public Presortedness presortedness(int[] array, int low, int high)
+    {
+        int length = high - low + 1;
+        if(length <= 1)
+        {
+            return new Presortedness(Math.max(length, 0), Math.max(length, 0), 0);
+        }
+
+        // count the places where a new run starts
+        int runs = 1;
+        for(int i = low; i < high; ++i)
+        {
+            if(array[i] > array[i + 1])
+            {
+                ++runs;
+            }
+        }
+
+        // estimate inversions from random pairs
+        int inverted = 0;
+        for(int sample = 0; sample < INVERSION_SAMPLES; ++sample)
+        {
+            int i = ThreadLocalRandom.current().nextInt(length) + low;
+            int j = ThreadLocalRandom.current().nextInt(length) + low;
+            if((i < j && array[i] > array[j]) || (j < i && array[j] > array[i]))
+            {
+                ++inverted;
+            }
+        }
+        long pairs = (long) length * (length - 1) / 2;
+        // a sample where i == j is never inverted, so scale by the chance the two indeces differ
+        double distinct = 1.0 - 1.0 / length;
+        long inversions = Math.min(pairs, Math.round(pairs * ((double) inverted / INVERSION_SAMPLES) / distinct));
+
+        return new Presortedness(length, runs, inversions);
+    }
+
+    /**
+     * Sorts the array from low to high in a single linear pass if it is
+     * already sorted or reverse sorted.
+     *
+     * @param array The array to be sorted.
+     * @param low The lowest index.
+     * @param high The highest index.
+     * @return True if the range is now sorted, false if it still needs a full sort.
+     */
+    public boolean sortIfPresorted(int[] array, int low, int high)
+    {
+        if(isSorted(array, low, high))
+        {
+            return true;
+        }
+        if(isReverseSorted(array, low, high))
+        {
+            reverse(array, low, high);
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Performs a standard recursive QuickSort algorithm on an array from high
+     * to low, unless the array is already sorted or reverse sorted, which is
+     * the quadratic worst case of the standard partition. Uses a for loop to
+     * evaluate the partition.
+     *
+     * @param array The array to be sorted.
+     * @param low The lowest index.
+     * @param high The highest index.
+     */
+    public void sortCheckingPresortedUsingFor(int[] array, int low, int high)
+    {
+        if(!sortIfPresorted(array, low, high))
+        {
+            sortUsingFor(array, low, high);
+        }
+    }
+
+    /**
+     * Performs a standard recursive QuickSort algorithm on an array from high
+     * to low, unless the array is already sorted or reverse sorted, which is
+     * the quadratic worst case of the standard partition. Uses a while loop to
+     * evaluate the partition.
+     *
+     * @param array The array to be sorted.
+     * @param low The lowest index.
+     * @param high The highest index.
+     */
+    public void sortCheckingPresortedUsingWhile(int[] array, int low, int high)
+    {
+        if(!sortIfPresorted(array, low, high))
+        {
+            sortUsingWhile(array, low, high);
         }
     }
 }
@@ -0,0 +1,247 @@
+package sortcomparisons;
+
+import java.io.PrintStream;
+import java.text.DecimalFormat;
+import java.text.NumberFormat;
+import java.util.Arrays;
+
+/**
+ * Holds the measurements of a test set until the whole set has run, so that
+ * no console I/O or number formatting happens between one timed region and
+ * the next. Each test is recorded with start, which is called before the
+ * timed region, and finish or finishBatch, which are called after it; these
+ * only store references and primitives into arrays allocated up front. The
+ * tests are formatted and written in order by flush, once the set is done.
+ *
+ * @author Alex Laird
+ * @version 1.0
+ */
+public class ResultBuffer
+{
+    // object declarations
+    private static final NumberFormat formatter = new DecimalFormat("###,###");
+
+    // the number of tests recorded so far
+    private int count = 0;
+
+    // the measurements of each test, by the order it was recorded in
+    private int[] testSets;
+    private int[] tests;
+    private int[] sizes;
+    private String[] methods;
+    private long[] startTimes;
+    private long[] endTimes;
+    private long[] allocatedBytes;
+    private long[] gcCounts;
+    private long[] gcTimes;
+    // the number of segments sorted by a batch test, or -1 for an ordinary test
+    private long[] segments;
+    // the contents of the array before and after sorting, only for tests that output them
+    private int[][] preSort;
+    private int[][] postSort;
+    // lines to output after each test, or null if there are none
+    private String[] notes;
+    // 1 if the test's output was verified as sorted, 0 if it was not sorted, or -1 if it was not checked
+    private byte[] verified;
+
+    /**
+     * Constructs a buffer that holds capacity tests before it needs to grow.
+     *
+     * @param capacity The number of tests to allocate room for.
+     */
+    public ResultBuffer(int capacity)
+    {
+        allocate(Math.max(capacity, 1));
+    }
+
+    /**
+     * Allocates the buffers, keeping any tests already recorded.
+     *
+     * @param capacity The number of tests to allocate room for.
+     */
+    private void allocate(int capacity)
+    {
+        testSets = testSets == null ? new int[capacity] : Arrays.copyOf(testSets, capacity);
+        tests = tests == null ? new int[capacity] : Arrays.copyOf(tests, capacity);
+        sizes = sizes == null ? new int[capacity] : Arrays.copyOf(sizes, capacity);
+        methods = methods == null ? new String[capacity] : Arrays.copyOf(methods, capacity);
+        startTimes = startTimes == null ? new long[capacity] : Arrays.copyOf(startTimes, capacity);
+        endTimes = endTimes == null ? new long[capacity] : Arrays.copyOf(endTimes, capacity);
+        allocatedBytes = allocatedBytes == null ? new long[capacity] : Arrays.copyOf(allocatedBytes, capacity);
+        gcCounts = gcCounts == null ? new long[capacity] : Arrays.copyOf(gcCounts, capacity);
+        gcTimes = gcTimes == null ? new long[capacity] : Arrays.copyOf(gcTimes, capacity);
+        segments = segments == null ? new long[capacity] : Arrays.copyOf(segments, capacity);
+        preSort = preSort == null ? new int[capacity][] : Arrays.copyOf(preSort, capacity);
+        postSort = postSort == null ? new int[capacity][] : Arrays.copyOf(postSort, capacity);
+        notes = notes == null ? new String[capacity] : Arrays.copyOf(notes, capacity);
+        verified = verified == null ? new byte[capacity] : Arrays.copyOf(verified, capacity);
+    }
+
+    /**
+     * Records the start of a test. Must be called before its timed region,
+     * since the buffer grows here if it is full.
+     *
+     * @param testSet The number of the test set.
+     * @param test The number of the test within its set.
+     * @param method A string briefly describing the sort method used.
+     * @param array The unsorted array.
+     * @param arrayOutput True if the contents of the array should be output, false otherwise.
+     */
+    public void start(int testSet, int test, String method, int[] array, boolean arrayOutput)
+    {
+        if(count == testSets.length)
+        {
+            allocate(testSets.length * 2);
+        }
+
+        testSets[count] = testSet;
+        tests[count] = test;
+        sizes[count] = array.length;
+        methods[count] = method;
+        segments[count] = -1;
+        preSort[count] = arrayOutput ? Arrays.copyOf(array, array.length) : null;
+        postSort[count] = null;
+        notes[count] = null;
+        verified[count] = -1;
+    }
+
+    /**
+     * Records the end of a test started by start.
+     *
+     * @param array The sorted array.
+     * @param startTime The time in nanoseconds when the sort started.
+     * @param endTime The time in nanoseconds when the sort ended.
+     * @param allocation The monitor that measured the sort.
+     * @param arrayOutput True if the contents of the array should be output, false otherwise.
+     */
+    public void finish(int[] array, long startTime, long endTime, AllocationMonitor allocation, boolean arrayOutput)
+    {
+        startTimes[count] = startTime;
+        endTimes[count] = endTime;
+        allocatedBytes[count] = allocation.getAllocatedBytes();
+        gcCounts[count] = allocation.getGcCount();
+        gcTimes[count] = allocation.getGcTimeMs();
+        postSort[count] = arrayOutput ? Arrays.copyOf(array, array.length) : null;
+        ++count;
+    }
+
+    /**
+     * Records the end of a test started by start that sorted many segments.
+     *
+     * @param segmentCount The number of segments that were sorted.
+     * @param startTime The time in nanoseconds when the sort started.
+     * @param endTime The time in nanoseconds when the sort ended.
+     * @param allocation The monitor that measured the sort.
+     */
+    public void finishBatch(int segmentCount, long startTime, long endTime, AllocationMonitor allocation)
+    {
+        finish(null, startTime, endTime, allocation, false);
+        segments[count - 1] = segmentCount;
+    }
+
+    /**
+     * Records whether the most recently finished test sorted its array properly.
+     *
+     * @param sorted True if the array was verified as sorted, false otherwise.
+     */
+    public void verified(boolean sorted)
+    {
+        verified[Math.max(count - 1, 0)] = (byte) (sorted ? 1 : 0);
+    }
+
+    /**
+     * Adds a line to be output after the most recently finished test.
+     *
+     * @param line The line to output.
+     */
+    public void note(String line)
+    {
+        int last = Math.max(count - 1, 0);
+        notes[last] = notes[last] == null ? line : notes[last] + "\n" + line;
+    }
+
+    /**
+     * Outputs the contents of an array.
+     *
+     * @param out Where to output the array.
+     * @param array The array to be output.
+     */
+    private static void outputArray(PrintStream out, int[] array)
+    {
+        for(int i = 0; i < array.length; ++i)
+        {
+            if(i < array.length - 1)
+            {
+                out.print(array[i] + ", ");
+            }
+            else
+            {
+                out.print(array[i]);
+            }
+        }
+    }
+
+    /**
+     * Formats and outputs every test recorded since the last flush, in the
+     * order they ran, and empties the buffer.
+     *
+     * @param out Where to output the tests.
+     */
+    public void flush(PrintStream out)
+    {
+        for(int i = 0; i < count; ++i)
+        {
+            long runtime = endTimes[i] - startTimes[i];
+
+            out.println("----------------------------");
+            out.println("Test " + testSets[i] + "." + tests[i]);
+            out.println("Array Size: " + formatter.format(sizes[i]));
+            if(preSort[i] != null)
+            {
+                out.print("Array Elements Pre-Sort: [");
+                outputArray(out, preSort[i]);
+                out.println("]");
+            }
+            out.println("Method Used: " + methods[i]);
+            out.println("Start Time: " + formatter.format(startTimes[i]) + " ns");
+            out.println("End Time: " + formatter.format(endTimes[i]) + " ns");
+            out.println("Total Runtime: " + formatter.format(runtime) + " ns");
+            if(segments[i] >= 0)
+            {
+                out.println("Segments Sorted: " + formatter.format(segments[i]));
+                out.println("Segments Per Second: " + formatter.format(segments[i] * 1000000000.0 / runtime));
+            }
+            else
+            {
+                out.println("Time Per Element: " + formatter.format(runtime / Math.max(sizes[i], 1)) + " ns");
+            }
+            if(allocatedBytes[i] >= 0)
+            {
+                out.println("Bytes Allocated: " + formatter.format(allocatedBytes[i]));
+            }
+            out.println("Garbage Collections: " + gcCounts[i] + " (" + formatter.format(gcTimes[i]) + " ms)");
+            if(verified[i] >= 0)
+            {
+                out.println(verified[i] == 1 ? "Verified: array sorted properly" : "Unverified: array did not sort properly");
+            }
+            if(postSort[i] != null)
+            {
+                out.print("Array Elements Post-Sort: [");
+                outputArray(out, postSort[i]);
+                out.println("]");
+            }
+            out.println("----------------------------\n");
+            if(notes[i] != null)
+            {
+                out.println(notes[i]);
+            }
+
+            // drop the references so the arrays can be collected
+            methods[i] = null;
+            preSort[i] = null;
+            postSort[i] = null;
+            notes[i] = null;
+        }
+        count = 0;
+    }
+}
@@ -0,0 +1,233 @@
+package sortcomparisons;
+
+import java.io.IOException;
+import java.text.DecimalFormat;
+import java.text.NumberFormat;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares a candidate result file against a baseline result file, case by
+ * case, and flags every case that got slower by more than a threshold with a
+ * difference that is statistically significant by Welch's t-test at the 95%
+ * level. Exits with status 1 if any regression was flagged, so it can gate a
+ * deployment script. Where both files measured allocation, the change in bytes
+ * allocated per run is shown beside the timing. A case that appears on several
+ * rows of a file, such as one run several times by test.sh, is combined into
+ * one result over all of its runs before it is tested.
+ *
+ * Usage: java sortcomparisons.ResultComparator baseline.csv candidate.csv [thresholdPercent]
+ *
+ * @author Alex Laird
+ * @version 1.0
+ */
+public class ResultComparator
+{
+    // object declarations
+    private static final NumberFormat formatter = new DecimalFormat("###,###");
+    private static final NumberFormat percentFormatter = new DecimalFormat("+0.0;-0.0");
+
+    // the slowdown, in percent, below which a case is never flagged
+    private static final double DEFAULT_THRESHOLD_PERCENT = 5.0;
+    // two-sided 95% critical values of Student's t for 1 through 30 degrees of freedom
+    private static final double[] T_CRITICAL = {12.706, 4.303, 3.182, 2.776, 2.571, 2.447, 2.365, 2.306, 2.262, 2.228,
+                                                2.201, 2.179, 2.160, 2.145, 2.131, 2.120, 2.110, 2.101, 2.093, 2.086,
+                                                2.080, 2.074, 2.069, 2.064, 2.060, 2.056, 2.052, 2.048, 2.045, 2.042};
+    // the critical value used beyond 30 degrees of freedom
+    private static final double T_CRITICAL_LARGE = 1.960;
+
+    /**
+     * Decides whether the candidate is significantly slower than the baseline
+     * using Welch's t-test, which does not assume equal variances.
+     *
+     * @param baseline The baseline result.
+     * @param candidate The candidate result.
+     * @return True if the candidate is significantly slower, false if not or if either side has fewer than two samples.
+     */
+    public static boolean isSignificantlySlower(BenchmarkResult baseline, BenchmarkResult candidate)
+    {
+        if(baseline.getSamples() < 2 || candidate.getSamples() < 2)
+        {
+            return false;
+        }
+
+        double baselineVariance = baseline.getStdDevNs() * baseline.getStdDevNs() / baseline.getSamples();
+        double candidateVariance = candidate.getStdDevNs() * candidate.getStdDevNs() / candidate.getSamples();
+        double standardError = Math.sqrt(baselineVariance + candidateVariance);
+        if(standardError == 0)
+        {
+            return candidate.getMeanNs() > baseline.getMeanNs();
+        }
+        double t = (candidate.getMeanNs() - baseline.getMeanNs()) / standardError;
+
+        // Welch-Satterthwaite degrees of freedom
+        double degrees = (baselineVariance + candidateVariance) * (baselineVariance + candidateVariance)
+                         / (baselineVariance * baselineVariance / (baseline.getSamples() - 1)
+                            + candidateVariance * candidateVariance / (candidate.getSamples() - 1));
+        int df = (int) Math.floor(degrees);
+        double critical = df < 1 ? T_CRITICAL[0] : (df <= T_CRITICAL.length ? T_CRITICAL[df - 1] : T_CRITICAL_LARGE);
+
+        return t > critical;
+    }
+
+    /**
+     * Combines the rows of each case into one result, pooling their runs. The
+     * pooled standard deviation takes in the spread between the rows' means
+     * as well as the spread within each row, so a case run once per JVM, as
+     * Project6 is, gets a sample per JVM.
+     *
+     * @param results The results, in which a case may appear on several rows.
+     * @return One result per case, in the order each case first appears.
+     */
+    public static List<BenchmarkResult> combine(List<BenchmarkResult> results)
+    {
+        Map<String, List<BenchmarkResult>> byKey = new LinkedHashMap<String, List<BenchmarkResult>>();
+        for(BenchmarkResult result : results)
+        {
+            List<BenchmarkResult> rows = byKey.get(result.getKey());
+            if(rows == null)
+            {
+                rows = new ArrayList<BenchmarkResult>();
+                byKey.put(result.getKey(), rows);
+            }
+            rows.add(result);
+        }
+
+        List<BenchmarkResult> combined = new ArrayList<BenchmarkResult>();
+        for(List<BenchmarkResult> rows : byKey.values())
+        {
+            if(rows.size() == 1)
+            {
+                combined.add(rows.get(0));
+                continue;
+            }
+
+            int samples = 0;
+            double sum = 0;
+            long min = Long.MAX_VALUE;
+            double bytes = 0;
+            boolean bytesMeasured = true;
+            long gcCount = 0;
+            long gcTimeMs = 0;
+            for(BenchmarkResult row : rows)
+            {
+                samples += row.getSamples();
+                sum += row.getMeanNs() * row.getSamples();
+                min = Math.min(min, row.getMinNs());
+                bytes += (double) row.getBytesPerOp() * row.getSamples();
+                bytesMeasured &= row.getBytesPerOp() >= 0;
+                gcCount += row.getGcCount();
+                gcTimeMs += row.getGcTimeMs();
+            }
+            double mean = sum / samples;
+
+            // the squares within each row, plus each row's mean from the overall mean
+            double squares = 0;
+            for(BenchmarkResult row : rows)
+            {
+                squares += row.getStdDevNs() * row.getStdDevNs() * (row.getSamples() - 1);
+                squares += (row.getMeanNs() - mean) * (row.getMeanNs() - mean) * row.getSamples();
+            }
+            double stdDev = samples > 1 ? Math.sqrt(squares / (samples - 1)) : 0;
+
+            BenchmarkResult first = rows.get(0);
+            combined.add(new BenchmarkResult(first.getAlgorithm(), first.getSize(), first.getDistribution(), first.getThreads(), samples,
+                                             mean, stdDev, min, first.getJvm(), first.getCpu(),
+                                             bytesMeasured ? (long) (bytes / samples) : -1, gcCount, gcTimeMs));
+        }
+
+        return combined;
+    }
+
+    /**
+     * Compares every case in the candidate against the same case in the
+     * baseline and outputs one line per case, after combining the rows of
+     * each case in either file.
+     *
+     * @param baseline The baseline results.
+     * @param candidate The candidate results.
+     * @param thresholdPercent The slowdown, in percent, below which a case is never flagged.
+     * @return The number of regressions flagged.
+     */
+    public static int compare(List<BenchmarkResult> baseline, List<BenchmarkResult> candidate, double thresholdPercent)
+    {
+        baseline = combine(baseline);
+        candidate = combine(candidate);
+        Map<String, BenchmarkResult> baselineByKey = new HashMap<String, BenchmarkResult>();
+        for(BenchmarkResult result : baseline)
+        {
+            baselineByKey.put(result.getKey(), result);
+        }
+
+        int regressions = 0;
+        for(BenchmarkResult result : candidate)
+        {
+            BenchmarkResult before = baselineByKey.get(result.getKey());
+            if(before == null)
+            {
+                System.out.println("NEW         " + result.getKey() + ": " + formatter.format(result.getMeanNs()) + " ns");
+                continue;
+            }
+
+            double change = (result.getMeanNs() - before.getMeanNs()) / before.getMeanNs() * 100;
+            String status;
+            if(change > thresholdPercent && isSignificantlySlower(before, result))
+            {
+                status = "REGRESSION  ";
+                ++regressions;
+            }
+            else if(change > thresholdPercent)
+            {
+                status = "slower      ";
+            }
+            else if(change < -thresholdPercent)
+            {
+                status = "faster      ";
+            }
+            else
+            {
+                status = "unchanged   ";
+            }
+
+            String allocation = "";
+            if(before.getBytesPerOp() >= 0 && result.getBytesPerOp() >= 0)
+            {
+                allocation = ", " + formatter.format(before.getBytesPerOp()) + " B -> " + formatter.format(result.getBytesPerOp()) + " B allocated";
+            }
+
+            System.out.println(status + result.getKey() + ": " + formatter.format(before.getMeanNs()) + " ns -> "
+                               + formatter.format(result.getMeanNs()) + " ns (" + percentFormatter.format(change) + "%, n = "
+                               + before.getSamples() + " -> " + result.getSamples() + ")" + allocation);
+        }
+
+        if(candidate.size() > 0 && !candidate.get(0).getCpu().equals(baseline.isEmpty() ? "" : baseline.get(0).getCpu()))
+        {
+            System.out.println("Warning: the baseline and candidate were measured on different CPUs.");
+        }
+        System.out.println(regressions + " regression(s) flagged; \"slower\" marks slowdowns that are not statistically significant.");
+
+        return regressions;
+    }
+
+    /**
+     * Reads the two result files and compares them.
+     *
+     * @param args The baseline file, the candidate file, and optionally the threshold in percent.
+     * @throws IOException If either file could not be read.
+     */
+    public static void main(String[] args) throws IOException
+    {
+        if(args.length < 2)
+        {
+            System.out.println("Usage: java sortcomparisons.ResultComparator baseline.csv candidate.csv [thresholdPercent]");
+            System.exit(2);
+        }
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : DEFAULT_THRESHOLD_PERCENT;
+
+        int regressions = compare(ResultWriter.readCsv(args[0]), ResultWriter.readCsv(args[1]), threshold);
+        System.exit(regressions > 0 ? 1 : 0);
+    }
+}
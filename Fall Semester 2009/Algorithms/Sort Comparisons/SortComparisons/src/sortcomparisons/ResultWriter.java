@@ -0,0 +1,241 @@
+package sortcomparisons;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes benchmark results to machine-readable files, and reads them back for
+ * comparison. Files ending in .json are written as a JSON array of objects;
+ * anything else is written as CSV with a header line. Only CSV files can be
+ * read back, so keep CSV for anything that will be compared. Files written
+ * before the allocation columns were added can still be read, with allocation
+ * left unmeasured.
+ *
+ * @author Alex Laird
+ * @version 1.0
+ */
+public class ResultWriter
+{
+    // the columns of a CSV result file, in order
+    public static final String CSV_HEADER = "algorithm,size,distribution,threads,samples,meanNs,stdDevNs,minNs,jvm,cpu,bytesPerOp,gcCount,gcTimeMs";
+
+    // the CPU description, read once
+    private static String cpu = null;
+
+    /**
+     * Describes the JVM this process is running on.
+     *
+     * @return The JVM name and version.
+     */
+    public static String jvmDescription()
+    {
+        return clean(System.getProperty("java.vm.name") + " " + System.getProperty("java.version"));
+    }
+
+    /**
+     * Describes the CPU this process is running on, using the model name from
+     * /proc/cpuinfo where it exists.
+     *
+     * @return The CPU model and the number of available processors.
+     */
+    public static synchronized String cpuDescription()
+    {
+        if(cpu == null)
+        {
+            String model = System.getProperty("os.arch");
+            try
+            {
+                BufferedReader reader = new BufferedReader(new FileReader("/proc/cpuinfo"));
+                try
+                {
+                    String line;
+                    while((line = reader.readLine()) != null)
+                    {
+                        if(line.startsWith("model name"))
+                        {
+                            model = line.substring(line.indexOf(':') + 1).trim();
+                            break;
+                        }
+                    }
+                }
+                finally
+                {
+                    reader.close();
+                }
+            }
+            catch(IOException ex)
+            {
+                // not on Linux, so the architecture will have to do
+            }
+            cpu = clean(model + " x" + Runtime.getRuntime().availableProcessors());
+        }
+
+        return cpu;
+    }
+
+    /**
+     * Removes the characters that would break a CSV or JSON field.
+     *
+     * @param value The value to clean.
+     * @return The value without commas, quotes or backslashes.
+     */
+    private static String clean(String value)
+    {
+        return value.replace(',', ' ').replace('"', '\'').replace('\\', '/');
+    }
+
+    /**
+     * Formats a result as a line of CSV.
+     *
+     * @param result The result to format.
+     * @return The CSV line, without a line terminator.
+     */
+    private static String toCsv(BenchmarkResult result)
+    {
+        return clean(result.getAlgorithm()) + "," + result.getSize() + "," + clean(result.getDistribution()) + "," + result.getThreads() + ","
+               + result.getSamples() + "," + result.getMeanNs() + "," + result.getStdDevNs() + "," + result.getMinNs() + ","
+               + clean(result.getJvm()) + "," + clean(result.getCpu()) + "," + result.getBytesPerOp() + "," + result.getGcCount() + ","
+               + result.getGcTimeMs();
+    }
+
+    /**
+     * Formats a result as a JSON object.
+     *
+     * @param result The result to format.
+     * @return The JSON object.
+     */
+    private static String toJson(BenchmarkResult result)
+    {
+        return "{\"algorithm\": \"" + clean(result.getAlgorithm()) + "\", \"size\": " + result.getSize()
+               + ", \"distribution\": \"" + clean(result.getDistribution()) + "\", \"threads\": " + result.getThreads()
+               + ", \"samples\": " + result.getSamples() + ", \"meanNs\": " + result.getMeanNs()
+               + ", \"stdDevNs\": " + result.getStdDevNs() + ", \"minNs\": " + result.getMinNs()
+               + ", \"jvm\": \"" + clean(result.getJvm()) + "\", \"cpu\": \"" + clean(result.getCpu())
+               + "\", \"bytesPerOp\": " + result.getBytesPerOp() + ", \"gcCount\": " + result.getGcCount()
+               + ", \"gcTimeMs\": " + result.getGcTimeMs() + "}";
+    }
+
+    /**
+     * Writes the results to the given file, replacing it, as JSON if the file
+     * name ends in .json and as CSV otherwise.
+     *
+     * @param fileName The file to write.
+     * @param results The results to write.
+     * @throws IOException If the file could not be written.
+     */
+    public static void write(String fileName, List<BenchmarkResult> results) throws IOException
+    {
+        PrintWriter writer = new PrintWriter(new FileWriter(fileName));
+        try
+        {
+            if(fileName.endsWith(".json"))
+            {
+                writer.println("[");
+                for(int i = 0; i < results.size(); ++i)
+                {
+                    writer.println("  " + toJson(results.get(i)) + (i < results.size() - 1 ? "," : ""));
+                }
+                writer.println("]");
+            }
+            else
+            {
+                writer.println(CSV_HEADER);
+                for(BenchmarkResult result : results)
+                {
+                    writer.println(toCsv(result));
+                }
+            }
+        }
+        finally
+        {
+            writer.close();
+        }
+    }
+
+    /**
+     * Appends the results to the given CSV file, writing the header first if
+     * the file does not exist yet. This lets separate runs, such as each
+     * invocation of Project6 from test.sh, collect into one file.
+     *
+     * @param fileName The CSV file to append to.
+     * @param results The results to append.
+     * @throws IOException If the file could not be written.
+     */
+    public static void appendCsv(String fileName, List<BenchmarkResult> results) throws IOException
+    {
+        boolean isNew = !new File(fileName).exists() || new File(fileName).length() == 0;
+        PrintWriter writer = new PrintWriter(new FileWriter(fileName, true));
+        try
+        {
+            if(isNew)
+            {
+                writer.println(CSV_HEADER);
+            }
+            for(BenchmarkResult result : results)
+            {
+                writer.println(toCsv(result));
+            }
+        }
+        finally
+        {
+            writer.close();
+        }
+    }
+
+    /**
+     * Reads every result from a CSV file written by this class.
+     *
+     * @param fileName The CSV file to read.
+     * @return The results in the order they appear.
+     * @throws IOException If the file could not be read or is not a result file.
+     */
+    public static List<BenchmarkResult> readCsv(String fileName) throws IOException
+    {
+        List<BenchmarkResult> results = new ArrayList<BenchmarkResult>();
+        BufferedReader reader = new BufferedReader(new FileReader(fileName));
+        try
+        {
+            String line;
+            while((line = reader.readLine()) != null)
+            {
+                if(line.trim().length() == 0 || line.startsWith("algorithm,"))
+                {
+                    continue;
+                }
+
+                String[] fields = line.split(",", -1);
+                if(fields.length < 10)
+                {
+                    throw new IOException("Not a result line in " + fileName + ": " + line);
+                }
+                try
+                {
+                    // older files have no allocation columns
+                    boolean hasAllocation = fields.length >= 13;
+                    results.add(new BenchmarkResult(fields[0], Integer.parseInt(fields[1]), fields[2], Integer.parseInt(fields[3]),
+                                                    Integer.parseInt(fields[4]), Double.parseDouble(fields[5]), Double.parseDouble(fields[6]),
+                                                    Long.parseLong(fields[7]), fields[8], fields[9],
+                                                    hasAllocation ? Long.parseLong(fields[10]) : -1,
+                                                    hasAllocation ? Long.parseLong(fields[11]) : 0,
+                                                    hasAllocation ? Long.parseLong(fields[12]) : 0));
+                }
+                catch(NumberFormatException ex)
+                {
+                    throw new IOException("Not a result line in " + fileName + ": " + line, ex);
+                }
+            }
+        }
+        finally
+        {
+            reader.close();
+        }
+
+        return results;
+    }
+}
@@ -0,0 +1,124 @@
+package sortcomparisons;
+
+/**
+ * A single line of a scenario file: one algorithm run repeatedly against one
+ * size and distribution of input.
+ *
+ * @author Alex Laird
+ * @version 1.0
+ */
+public class Scenario
+{
+    // the sort mode to run
+    private final SortAlgorithm algorithm;
+    // the size of the array to sort
+    private final int size;
+    // the shape of the input data
+    private final Distribution distribution;
+    // elements are between 0 (inclusive) and maxValue
+    private final int maxValue;
+    // the number of timed runs
+    private final int repetitions;
+
+    /**
+     * Constructs a scenario.
+     *
+     * @param algorithm The sort mode to run.
+     * @param size The size of the array to sort.
+     * @param distribution The shape of the input data.
+     * @param maxValue Elements are between 0 (inclusive) and maxValue.
+     * @param repetitions The number of timed runs.
+     */
+    public Scenario(SortAlgorithm algorithm, int size, Distribution distribution, int maxValue, int repetitions)
+    {
+        this.algorithm = algorithm;
+        this.size = size;
+        this.distribution = distribution;
+        this.maxValue = maxValue;
+        this.repetitions = repetitions;
+    }
+
+    /**
+     * Parses a line of a scenario file in the form
+     * algorithm,size,distribution,maxValue,repetitions.
+     *
+     * @param line The line to parse.
+     * @return The scenario described by the line.
+     * @throws IllegalArgumentException If the line is not a valid scenario.
+     */
+    public static Scenario parse(String line)
+    {
+        String[] fields = line.split(",");
+        if(fields.length != 5)
+        {
+            throw new IllegalArgumentException("Expected algorithm,size,distribution,maxValue,repetitions but found: " + line);
+        }
+
+        return new Scenario(SortAlgorithm.valueOf(fields[0].trim().toUpperCase()),
+                            Integer.parseInt(fields[1].trim()),
+                            Distribution.valueOf(fields[2].trim().toUpperCase()),
+                            Integer.parseInt(fields[3].trim()),
+                            Integer.parseInt(fields[4].trim()));
+    }
+
+    /**
+     * Retrieve the sort mode to run.
+     *
+     * @return The sort mode to run.
+     */
+    public SortAlgorithm getAlgorithm()
+    {
+        return algorithm;
+    }
+
+    /**
+     * Retrieve the size of the array to sort.
+     *
+     * @return The size of the array to sort.
+     */
+    public int getSize()
+    {
+        return size;
+    }
+
+    /**
+     * Retrieve the shape of the input data.
+     *
+     * @return The shape of the input data.
+     */
+    public Distribution getDistribution()
+    {
+        return distribution;
+    }
+
+    /**
+     * Retrieve the exclusive upper bound of the elements.
+     *
+     * @return The exclusive upper bound of the elements.
+     */
+    public int getMaxValue()
+    {
+        return maxValue;
+    }
+
+    /**
+     * Retrieve the number of timed runs.
+     *
+     * @return The number of timed runs.
+     */
+    public int getRepetitions()
+    {
+        return repetitions;
+    }
+
+    /**
+     * Outputs the scenario in the same form it is parsed from.
+     *
+     * @return The scenario as a string.
+     */
+    @Override
+    public String toString()
+    {
+        return algorithm + "," + size + "," + distribution + "," + maxValue + "," + repetitions;
+    }
+}
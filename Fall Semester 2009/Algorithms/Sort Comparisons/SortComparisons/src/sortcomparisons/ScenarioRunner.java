@@ -0,0 +1,190 @@
+package sortcomparisons;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.text.DecimalFormat;
+import java.text.NumberFormat;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs a matrix of benchmark scenarios read from a file, rather than the test
+ * sets hardcoded into Benchmark. Each non-blank line of the file that does not
+ * start with # describes one scenario:
+ *
+ * algorithm,size,distribution,maxValue,repetitions
+ *
+ * where algorithm is a SortAlgorithm and distribution is a Distribution. Every
+ * input array is generated once by ArrayGenerator, before any timing starts,
+ * and copied into a single preallocated work array with System.arraycopy
+ * before each run, so the whole matrix runs in one JVM without allocating
+ * between runs. The bytes allocated and the garbage collections during each
+ * scenario's runs are measured by AllocationMonitor and reported beside the
+ * timings.
+ *
+ * Usage: java sortcomparisons.ScenarioRunner [scenarioFile] [seed] [resultFile]
+ *
+ * If a result file is given, the timings are also written to it through
+ * ResultWriter, as JSON if its name ends in .json and as CSV otherwise.
+ *
+ * @author Alex Laird
+ * @version 1.0
+ */
+public class ScenarioRunner
+{
+    // object declarations
+    private static final NumberFormat formatter = new DecimalFormat("###,###");
+
+    // the scenario file read when none is given
+    private static final String DEFAULT_SCENARIO_FILE = "scenarios.csv";
+
+    /**
+     * Reads every scenario from the given file.
+     *
+     * @param fileName The scenario file.
+     * @return The scenarios in the order they appear.
+     * @throws IOException If the file could not be read.
+     */
+    public static List<Scenario> readScenarios(String fileName) throws IOException
+    {
+        List<Scenario> scenarios = new ArrayList<Scenario>();
+        BufferedReader reader = new BufferedReader(new FileReader(fileName));
+        try
+        {
+            String line;
+            while((line = reader.readLine()) != null)
+            {
+                line = line.trim();
+                if(line.length() > 0 && !line.startsWith("#"))
+                {
+                    scenarios.add(Scenario.parse(line));
+                }
+            }
+        }
+        finally
+        {
+            reader.close();
+        }
+
+        return scenarios;
+    }
+
+    /**
+     * Builds the key identifying a scenario's input, so scenarios that differ
+     * only by algorithm or repetitions share the same input array.
+     *
+     * @param scenario The scenario.
+     * @return The key of its input.
+     */
+    private static String inputKey(Scenario scenario)
+    {
+        return scenario.getSize() + ":" + scenario.getDistribution() + ":" + scenario.getMaxValue();
+    }
+
+    /**
+     * Runs every scenario and outputs a summary of each.
+     *
+     * @param scenarios The scenarios to run.
+     * @param seed The seed for input generation.
+     * @return The result of each scenario.
+     */
+    public static List<BenchmarkResult> run(List<Scenario> scenarios, long seed)
+    {
+        ArrayGenerator generator = new ArrayGenerator(seed, Runtime.getRuntime().availableProcessors());
+
+        // generate every input up front and size the work array for the largest
+        Map<String, int[]> inputs = new HashMap<String, int[]>();
+        int maxSize = 0;
+        int maxRepetitions = 0;
+        for(Scenario scenario : scenarios)
+        {
+            String key = inputKey(scenario);
+            if(!inputs.containsKey(key))
+            {
+                inputs.put(key, generator.generate(scenario.getDistribution(), scenario.getSize(), scenario.getMaxValue()));
+            }
+            maxSize = Math.max(maxSize, scenario.getSize());
+            maxRepetitions = Math.max(maxRepetitions, scenario.getRepetitions());
+        }
+        int[] work = new int[maxSize];
+        long[] times = new long[maxRepetitions];
+        List<BenchmarkResult> results = new ArrayList<BenchmarkResult>();
+        AllocationMonitor allocation = new AllocationMonitor();
+
+        for(Scenario scenario : scenarios)
+        {
+            int[] input = inputs.get(inputKey(scenario));
+            int size = scenario.getSize();
+            SortAlgorithm algorithm = scenario.getAlgorithm();
+
+            allocation.begin();
+            for(int rep = 0; rep < scenario.getRepetitions(); ++rep)
+            {
+                System.arraycopy(input, 0, work, 0, size);
+                long startTime = System.nanoTime();
+                algorithm.sort(work, 0, size - 1);
+                long endTime = System.nanoTime();
+                times[rep] = endTime - startTime;
+            }
+            allocation.end();
+
+            outputScenario(scenario, times, allocation);
+            results.add(BenchmarkResult.fromTimes(algorithm.name(), size, scenario.getDistribution().name(), 1, times, scenario.getRepetitions(), allocation));
+        }
+
+        return results;
+    }
+
+    /**
+     * Outputs the timings of a completed scenario.
+     *
+     * @param scenario The scenario that was run.
+     * @param times The runtime of each repetition in nanoseconds.
+     * @param allocation The monitor that measured every repetition.
+     */
+    private static void outputScenario(Scenario scenario, long[] times, AllocationMonitor allocation)
+    {
+        int repetitions = scenario.getRepetitions();
+        long min = Long.MAX_VALUE;
+        long max = 0;
+        double sum = 0;
+        for(int rep = 0; rep < repetitions; ++rep)
+        {
+            min = Math.min(min, times[rep]);
+            max = Math.max(max, times[rep]);
+            sum += times[rep];
+        }
+        double mean = sum / repetitions;
+
+        System.out.println(scenario.getAlgorithm() + " on " + scenario.getDistribution() + " array of size " + formatter.format(scenario.getSize())
+                           + " (maxValue " + formatter.format(scenario.getMaxValue()) + ", " + repetitions + " runs)");
+        System.out.println("    Mean: " + formatter.format(mean) + " ns, Min: " + formatter.format(min) + " ns, Max: " + formatter.format(max) + " ns");
+        System.out.println("    Mean Time Per Element: " + formatter.format(mean / Math.max(scenario.getSize(), 1)) + " ns");
+        if(allocation.getAllocatedBytes() >= 0)
+        {
+            System.out.println("    Allocated Per Run: " + formatter.format(allocation.getAllocatedBytes() / repetitions) + " bytes");
+        }
+        System.out.println("    Garbage Collections: " + allocation.getGcCount() + " (" + formatter.format(allocation.getGcTimeMs()) + " ms)");
+    }
+
+    /**
+     * Reads the scenario file and runs every scenario in it.
+     *
+     * @param args The scenario file, the seed for input generation and the result file; all are optional.
+     * @throws IOException If the scenario file could not be read or the result file could not be written.
+     */
+    public static void main(String[] args) throws IOException
+    {
+        String fileName = args.length > 0 ? args[0] : DEFAULT_SCENARIO_FILE;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : System.nanoTime();
+
+        List<BenchmarkResult> results = run(readScenarios(fileName), seed);
+        if(args.length > 2)
+        {
+            ResultWriter.write(args[2], results);
+        }
+    }
+}
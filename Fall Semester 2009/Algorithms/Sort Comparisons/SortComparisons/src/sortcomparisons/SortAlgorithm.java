@@ -0,0 +1,74 @@
+package sortcomparisons;
+
+/**
+ * Every sort mode that can be named in a benchmark scenario, each of which
+ * sorts a range of an array from low to high.
+ *
+ * @author Alex Laird
+ * @version 1.0
+ */
+public enum SortAlgorithm
+{
+    INSERTION
+    {
+        public void sort(int[] array, int low, int high)
+        {
+            insertionSort.sort(array, low, high);
+        }
+    },
+    QUICK_FOR
+    {
+        public void sort(int[] array, int low, int high)
+        {
+            quickSort.sortUsingFor(array, low, high);
+        }
+    },
+    QUICK_WHILE
+    {
+        public void sort(int[] array, int low, int high)
+        {
+            quickSort.sortUsingWhile(array, low, high);
+        }
+    },
+    QUICK_RANDOMIZED_FOR
+    {
+        public void sort(int[] array, int low, int high)
+        {
+            quickSort.sortRandomizedPartitionUsingFor(array, low, high);
+        }
+    },
+    QUICK_RANDOMIZED_WHILE
+    {
+        public void sort(int[] array, int low, int high)
+        {
+            quickSort.sortRandomizedPartitionUsingWhile(array, low, high);
+        }
+    },
+    QUICK_CHECKING_PRESORTED_FOR
+    {
+        public void sort(int[] array, int low, int high)
+        {
+            quickSort.sortCheckingPresortedUsingFor(array, low, high);
+        }
+    },
+    QUICK_CHECKING_PRESORTED_WHILE
+    {
+        public void sort(int[] array, int low, int high)
+        {
+            quickSort.sortCheckingPresortedUsingWhile(array, low, high);
+        }
+    };
+
+    // object declarations
+    private static final InsertionSort insertionSort = new InsertionSort();
+    private static final QuickSort quickSort = new QuickSort();
+
+    /**
+     * Sorts the array from low to high.
+     *
+     * @param array The array to be sorted.
+     * @param low The lowest index.
+     * @param high The highest index.
+     */
+    public abstract void sort(int[] array, int low, int high);
+}
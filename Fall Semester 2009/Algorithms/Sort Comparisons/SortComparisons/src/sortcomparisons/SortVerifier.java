@@ -0,0 +1,333 @@
+package sortcomparisons;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Verifies a sort in O(n) time without copying the input. Before sorting, a
+ * Fingerprint of the array is taken: the sum, the xor and the sum of a mixed
+ * hash of every element, none of which depend on the order of the elements.
+ * After sorting, the array must be in ascending order and must have the same
+ * fingerprint, which shows that it holds the same elements as before, short of
+ * a hash collision. Both passes are split into chunks across numThreads
+ * threads, and only a few longs of extra memory are used. The threads are
+ * started on the first large array and kept, idle, for every later check, so
+ * none are starting or stopping while a sort between two checks is timed.
+ *
+ * @author Alex Laird
+ * @version 1.0
+ */
+public class SortVerifier
+{
+    // arrays smaller than this are checked on the calling thread
+    private static final int CHUNK_SIZE = 1 << 16;
+
+    // the number of threads checking each array
+    private final int numThreads;
+    // the pool shared by every check of a large array, or null until one is made
+    private ExecutorService pool;
+
+    /**
+     * An order-independent summary of the elements of an array.
+     */
+    public static class Fingerprint
+    {
+        // the number of elements
+        private final long length;
+        // the sum of the elements
+        private final long sum;
+        // the xor of the elements
+        private final long xor;
+        // the sum of the mixed hash of each element
+        private final long hash;
+
+        /**
+         * Constructs a fingerprint.
+         *
+         * @param length The number of elements.
+         * @param sum The sum of the elements.
+         * @param xor The xor of the elements.
+         * @param hash The sum of the mixed hash of each element.
+         */
+        private Fingerprint(long length, long sum, long xor, long hash)
+        {
+            this.length = length;
+            this.sum = sum;
+            this.xor = xor;
+            this.hash = hash;
+        }
+
+        /**
+         * Combines this fingerprint with that of another range of the array.
+         *
+         * @param other The fingerprint of the other range.
+         * @return The fingerprint of both ranges together.
+         */
+        private Fingerprint combine(Fingerprint other)
+        {
+            return new Fingerprint(length + other.length, sum + other.sum, xor ^ other.xor, hash + other.hash);
+        }
+
+        @Override
+        public boolean equals(Object object)
+        {
+            if(!(object instanceof Fingerprint))
+            {
+                return false;
+            }
+            Fingerprint other = (Fingerprint) object;
+            return length == other.length && sum == other.sum && xor == other.xor && hash == other.hash;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return (int) (hash ^ (hash >>> 32));
+        }
+    }
+
+    /**
+     * Constructs a verifier.
+     *
+     * @param numThreads The number of threads checking each array.
+     */
+    public SortVerifier(int numThreads)
+    {
+        this.numThreads = numThreads;
+    }
+
+    /**
+     * Scrambles the bits of a value, so that sums of the results are very
+     * unlikely to collide for different sets of values. This is the finalizer
+     * of the SplitMix64 generator.
+     *
+     * @param value The value to mix.
+     * @return The mixed value.
+     */
+    private static long mix(long value)
+    {
+        value = (value ^ (value >>> 30)) * 0xbf58476d1ce4e5b9L;
+        value = (value ^ (value >>> 27)) * 0x94d049bb133111ebL;
+        return value ^ (value >>> 31);
+    }
+
+    /**
+     * Fingerprints indeces from (inclusive) through to (exclusive) of the array.
+     *
+     * @param array The array.
+     * @param from The first index.
+     * @param to One past the last index.
+     * @return The fingerprint of the range.
+     */
+    private static Fingerprint fingerprint(int[] array, int from, int to)
+    {
+        long sum = 0;
+        long xor = 0;
+        long hash = 0;
+        for(int i = from; i < to; ++i)
+        {
+            sum += array[i];
+            xor ^= array[i];
+            hash += mix(array[i]);
+        }
+        return new Fingerprint(to - from, sum, xor, hash);
+    }
+
+    /**
+     * Checks that indeces from (inclusive) through to (exclusive) of the array
+     * are in ascending order, along with the element just past to, if any.
+     *
+     * @param array The array.
+     * @param from The first index.
+     * @param to One past the last index.
+     * @return True if the range is in ascending order, false otherwise.
+     */
+    private static boolean isSorted(int[] array, int from, int to)
+    {
+        int last = Math.min(to, array.length - 1);
+        for(int i = from; i < last; ++i)
+        {
+            if(array[i] > array[i + 1])
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Retrieve the shared pool, making it on first use. Its threads are
+     * daemons, so a verifier that is never shut down does not keep the JVM
+     * alive.
+     *
+     * @return The shared pool.
+     */
+    private synchronized ExecutorService getPool()
+    {
+        if(pool == null)
+        {
+            // the pool's threads report their allocation as they exit, for AllocationMonitor
+            pool = Executors.newFixedThreadPool(numThreads, AllocationMonitor.daemonThreadFactory());
+        }
+        return pool;
+    }
+
+    /**
+     * Releases the shared pool. A later check of a large array makes a new
+     * one.
+     */
+    public synchronized void shutdown()
+    {
+        if(pool != null)
+        {
+            pool.shutdown();
+            pool = null;
+        }
+    }
+
+    /**
+     * Runs one task per chunk of the array, across numThreads threads if the
+     * array is large enough, and returns each task's result in chunk order.
+     *
+     * @param chunks The task for each chunk.
+     * @return The result of each task.
+     */
+    private <T> List<T> runChunks(List<Callable<T>> chunks)
+    {
+        List<T> results = new ArrayList<T>();
+        if(numThreads <= 1 || chunks.size() <= 1)
+        {
+            for(Callable<T> chunk : chunks)
+            {
+                try
+                {
+                    results.add(chunk.call());
+                }
+                catch(Exception ex)
+                {
+                    throw new IllegalStateException(ex);
+                }
+            }
+            return results;
+        }
+
+        try
+        {
+            for(Future<T> future : getPool().invokeAll(chunks))
+            {
+                results.add(future.get());
+            }
+        }
+        catch(InterruptedException ex)
+        {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while verifying an array.", ex);
+        }
+        catch(ExecutionException ex)
+        {
+            throw new IllegalStateException(ex.getCause());
+        }
+        return results;
+    }
+
+    /**
+     * Splits the array into one range per thread, or a single range if the
+     * array is small.
+     *
+     * @param length The length of the array.
+     * @return The start of each range, followed by the length.
+     */
+    private int[] ranges(int length)
+    {
+        int count = length < CHUNK_SIZE ? 1 : Math.max(1, Math.min(numThreads, length / CHUNK_SIZE));
+        int[] bounds = new int[count + 1];
+        for(int i = 0; i <= count; ++i)
+        {
+            bounds[i] = (int) ((long) length * i / count);
+        }
+        return bounds;
+    }
+
+    /**
+     * Fingerprints the array. Call this before sorting, and pass the result
+     * to verify afterwards.
+     *
+     * @param array The array.
+     * @return The fingerprint of the array.
+     */
+    public Fingerprint fingerprint(final int[] array)
+    {
+        int[] bounds = ranges(array.length);
+        List<Callable<Fingerprint>> chunks = new ArrayList<Callable<Fingerprint>>();
+        for(int i = 0; i < bounds.length - 1; ++i)
+        {
+            final int from = bounds[i];
+            final int to = bounds[i + 1];
+            chunks.add(new Callable<Fingerprint>()
+            {
+                public Fingerprint call()
+                {
+                    return fingerprint(array, from, to);
+                }
+            });
+        }
+
+        Fingerprint total = new Fingerprint(0, 0, 0, 0);
+        for(Fingerprint chunk : runChunks(chunks))
+        {
+            total = total.combine(chunk);
+        }
+        return total;
+    }
+
+    /**
+     * Checks that the array is in ascending order.
+     *
+     * @param array The array.
+     * @return True if the array is in ascending order, false otherwise.
+     */
+    public boolean isSorted(final int[] array)
+    {
+        int[] bounds = ranges(array.length);
+        List<Callable<Boolean>> chunks = new ArrayList<Callable<Boolean>>();
+        for(int i = 0; i < bounds.length - 1; ++i)
+        {
+            final int from = bounds[i];
+            final int to = bounds[i + 1];
+            chunks.add(new Callable<Boolean>()
+            {
+                public Boolean call()
+                {
+                    return isSorted(array, from, to);
+                }
+            });
+        }
+
+        for(boolean sorted : runChunks(chunks))
+        {
+            if(!sorted)
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks that the array is in ascending order and holds the same elements
+     * it did when the fingerprint was taken.
+     *
+     * @param array The sorted array.
+     * @param before The fingerprint of the array before it was sorted.
+     * @return True if the array was sorted properly, false otherwise.
+     */
+    public boolean verify(int[] array, Fingerprint before)
+    {
+        return isSorted(array) && fingerprint(array).equals(before);
+    }
+}
@@ -0,0 +1,129 @@
+package sortcomparisons;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Properties;
+
+/**
+ * The machine-specific thresholds the sort engines read at startup. They are
+ * measured on the current host by Calibrator and proj6.GranularityCalibrator
+ * and kept in a properties file, tuning.properties in the working directory
+ * unless the sortcomparisons.tuning system property names another file. Any
+ * threshold missing from the file keeps the engine's built-in default.
+ *
+ * @author Alex Laird
+ * @version 1.0
+ */
+public class Tuning
+{
+    // the system property naming the tuning file
+    public static final String FILE_PROPERTY = "sortcomparisons.tuning";
+    // the tuning file used when the system property is not set
+    public static final String DEFAULT_FILE = "tuning.properties";
+
+    // the largest segment BatchSort sorts with InsertionSort
+    public static final String INSERTION_CUTOFF = "insertion.cutoff";
+    // QuickSort.sortUnique counts rather than partitions when maxValue is at most this many times the length
+    public static final String COUNTING_RANGE_FACTOR = "counting.range.factor";
+    // the largest partition a Project6 Part 3 or Part 4 task sorts without splitting further, and the floor of its adaptive cutoff
+    public static final String PARALLEL_CUTOFF = "parallel.cutoff";
+
+    // the thresholds loaded at startup
+    private static final Properties values = load();
+
+    /**
+     * Retrieve the name of the tuning file.
+     *
+     * @return The name of the tuning file.
+     */
+    public static String getFileName()
+    {
+        return System.getProperty(FILE_PROPERTY, DEFAULT_FILE);
+    }
+
+    /**
+     * Reads the tuning file, if it exists.
+     *
+     * @return The thresholds in the file, or no thresholds if it does not exist or cannot be read.
+     */
+    private static Properties load()
+    {
+        Properties properties = new Properties();
+        File file = new File(getFileName());
+        if(file.isFile())
+        {
+            try
+            {
+                InputStream in = new FileInputStream(file);
+                try
+                {
+                    properties.load(in);
+                }
+                finally
+                {
+                    in.close();
+                }
+            }
+            catch(IOException ex)
+            {
+                System.err.println("Could not read " + file + ", using default thresholds: " + ex.getMessage());
+            }
+        }
+
+        return properties;
+    }
+
+    /**
+     * Retrieve a threshold.
+     *
+     * @param key The name of the threshold.
+     * @param defaultValue The value to use if the tuning file does not set it.
+     * @return The threshold.
+     */
+    public static int get(String key, int defaultValue)
+    {
+        String value = values.getProperty(key);
+        if(value == null)
+        {
+            return defaultValue;
+        }
+
+        try
+        {
+            return Integer.parseInt(value.trim());
+        }
+        catch(NumberFormatException ex)
+        {
+            System.err.println("Ignoring " + key + "=" + value + " in " + getFileName() + ", it is not a number.");
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Stores a threshold in the tuning file, keeping every other threshold
+     * already in it. Engines already running keep the value they loaded.
+     *
+     * @param key The name of the threshold.
+     * @param value The threshold.
+     * @throws IOException If the tuning file could not be written.
+     */
+    public static synchronized void save(String key, int value) throws IOException
+    {
+        Properties properties = load();
+        properties.setProperty(key, Integer.toString(value));
+
+        OutputStream out = new FileOutputStream(getFileName());
+        try
+        {
+            properties.store(out, "Sort thresholds measured on this host");
+        }
+        finally
+        {
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package sortcomparisons;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks that ResultComparator flags a slowed down case as a regression when
+ * each run of the case is its own row, as Project6 writes them.
+ *
+ * @author Alex Laird
+ * @version 1.0
+ */
+public class ResultComparatorTest
+{
+    // the runtimes of one case in milliseconds, one row per run
+    private static final double[] TIMES_MS = {100, 104, 97, 102, 99};
+
+    /**
+     * Builds one single-sample row per run of a case, each scaled by factor.
+     *
+     * @param factor The slowdown to apply to every run.
+     * @return The rows.
+     */
+    private static List<BenchmarkResult> rows(double factor)
+    {
+        List<BenchmarkResult> rows = new ArrayList<BenchmarkResult>();
+        for(double time : TIMES_MS)
+        {
+            long ns = (long) (time * factor * 1000000);
+            rows.add(new BenchmarkResult("PROJECT6_PART3", 1000000, "RANDOM", 4, 1, ns, 0, ns, "jvm", "cpu", -1, 0, 0));
+        }
+        return rows;
+    }
+
+    /**
+     * Rows of the same case are pooled into one result over all of their runs.
+     */
+    @Test
+    public void combinePoolsRowsOfTheSameCase()
+    {
+        List<BenchmarkResult> combined = ResultComparator.combine(rows(1));
+
+        assertEquals(1, combined.size());
+        assertEquals(TIMES_MS.length, combined.get(0).getSamples());
+        assertEquals(100.4e6, combined.get(0).getMeanNs(), 1);
+        assertEquals(97e6, combined.get(0).getMinNs(), 1);
+    }
+
+    /**
+     * A case a fifth slower on every run is reported as a regression.
+     */
+    @Test
+    public void slowedDownCaseIsRegression()
+    {
+        assertEquals(1, ResultComparator.compare(rows(1), rows(1.2), 5.0));
+    }
+
+    /**
+     * The same runs again are not reported as a regression.
+     */
+    @Test
+    public void unchangedCaseIsNotRegression()
+    {
+        assertEquals(0, ResultComparator.compare(rows(1), rows(1), 5.0));
+    }
+
+    /**
+     * A slowdown under the threshold is not reported as a regression, however
+     * consistent it is.
+     */
+    @Test
+    public void slowdownUnderThresholdIsNotRegression()
+    {
+        assertEquals(0, ResultComparator.compare(rows(1), rows(1.03), 5.0));
+    }
+}
@@ -0,0 +1,68 @@
+package proj6;
+
+import java.io.IOException;
+import java.util.List;
+import sortcomparisons.CacheScalingBenchmark;
+
+/**
+ * Runs the cache-hierarchy sweep of sortcomparisons.CacheScalingBenchmark
+ * with Parts 1 through 6 added to its engines, so the parallel sorts can be
+ * compared with the sequential ones as the array spills out of each level of
+ * the cache. Part 1 is sequential; the other parts run on numThreads threads,
+ * which is recorded in the threads column of the results.
+ *
+ * Usage: java proj6.CacheScaling [resultFile] [maxBytes] [seed] [numThreads]
+ *
+ * @author Alex Laird
+ * @author Ryan Morehart
+ */
+public class CacheScaling
+{
+    /** The result file written when none is given.*/
+    private static final String DEFAULT_RESULT_FILE = "cache-scaling.csv";
+    /** The largest array size swept when none is given, in bytes.*/
+    private static final long DEFAULT_MAX_BYTES = 4L << 30;
+
+    /**
+     * Build an engine that sorts with one part of Project6.
+     *
+     * @param part The part to sort with.
+     * @param numThreads The number of threads the part sorts with.
+     * @return The engine.
+     */
+    private static CacheScalingBenchmark.Engine partEngine(final int part,
+                                                           final int numThreads)
+    {
+        return new CacheScalingBenchmark.Engine ("PROJECT6_PART" + part, numThreads, Integer.MAX_VALUE)
+        {
+            public void sort(int[] array)
+            {
+                // Project6 keeps per-run counters, so each sort needs its own
+                new Project6 (numThreads).runPart (part, array);
+            }
+        };
+    }
+
+    /**
+     * Run the sweep over every SortAlgorithm and every part.
+     *
+     * @param args The result file, the largest array size in bytes, the seed and the number of threads; all are optional.
+     * @throws IOException If the result file could not be written.
+     */
+    public static void main(String[] args) throws IOException
+    {
+        String resultFile = args.length > 0 ? args[0] : DEFAULT_RESULT_FILE;
+        long maxBytes = args.length > 1 ? Long.parseLong (args[1]) : DEFAULT_MAX_BYTES;
+        long seed = args.length > 2 ? Long.parseLong (args[2]) : System.nanoTime ();
+        int numThreads = args.length > 3 ? Integer.parseInt (args[3]) : Runtime.getRuntime ().availableProcessors ();
+
+        List<CacheScalingBenchmark.Engine> engines = CacheScalingBenchmark.sortAlgorithmEngines ();
+        engines.add (partEngine (1, 1));
+        for (int part = 2; part <= 6; ++part)
+        {
+            engines.add (partEngine (part, numThreads));
+        }
+
+        CacheScalingBenchmark.run (resultFile, maxBytes, seed, engines);
+    }
+}
@@ -0,0 +1,83 @@
+package proj6;
+
+import java.io.IOException;
+import sortcomparisons.ArrayGenerator;
+import sortcomparisons.Distribution;
+import sortcomparisons.Tuning;
+
+/**
+ * Measures the Part 3 task granularity that sorts fastest on this host and
+ * saves it to the tuning file, where Project6 reads it at startup in place of
+ * the old hardcoded cutoff of 1000. The adaptive cutoff never splits below
+ * it.
+ *
+ * Usage: java proj6.GranularityCalibrator [size] [numThreads]
+ *
+ * @author Alex Laird
+ * @author Ryan Morehart
+ */
+public class GranularityCalibrator
+{
+    /** The partition sizes tried as the cutoff.*/
+    private static final int[] CUTOFFS = {250, 500, 1000, 2000, 4000, 8000, 16000, 32000, 64000};
+    /** The number of runs of each cutoff; the fastest is kept, and the first ones double as warmup.*/
+    private static final int TRIALS = 5;
+
+    /**
+     * Time Part 3 at every cutoff and return the fastest.
+     *
+     * @param size The size of the array to sort.
+     * @param numThreads The number of threads to sort with.
+     * @return The cutoff that sorted fastest.
+     */
+    public static int measure(int size,
+                              int numThreads)
+    {
+        int[] input = new ArrayGenerator (System.nanoTime (), numThreads).generate (Distribution.RANDOM, size, Integer.MAX_VALUE);
+        int[] array = new int[size];
+
+        int bestCutoff = CUTOFFS[0];
+        long bestTime = Long.MAX_VALUE;
+        for (int cutoff : CUTOFFS)
+        {
+            long time = Long.MAX_VALUE;
+            for (int trial = 0; trial < TRIALS; ++trial)
+            {
+                System.arraycopy (input, 0, array, 0, size);
+                Project6 proj6 = new Project6 (numThreads);
+                proj6.setLargestSize (cutoff);
+
+                long startTime = System.nanoTime ();
+                proj6.runPart (3, array);
+                time = Math.min (time, System.nanoTime () - startTime);
+            }
+
+            System.out.println ("Cutoff " + Utility.NUM_FORMAT.format (cutoff) + ": " + Utility.NUM_FORMAT.format (time / 1000) + "us");
+            if (time < bestTime)
+            {
+                bestTime = time;
+                bestCutoff = cutoff;
+            }
+        }
+
+        return bestCutoff;
+    }
+
+    /**
+     * Measure the cutoff and save it to the tuning file.
+     *
+     * @param args The size of the array to sort and the number of threads; both are optional.
+     * @throws IOException If the tuning file could not be written.
+     */
+    public static void main(String[] args) throws IOException
+    {
+        int size = args.length > 0 ? Integer.parseInt (args[0]) : 1000000;
+        int numThreads = args.length > 1 ? Integer.parseInt (args[1]) : Runtime.getRuntime ().availableProcessors ();
+
+        int cutoff = measure (size, numThreads);
+        System.out.println ("Parallel cutoff: " + cutoff);
+
+        Tuning.save (Tuning.PARALLEL_CUTOFF, cutoff);
+        System.out.println ("Saved to " + Tuning.getFileName ());
+    }
+}
@@ -0,0 +1,419 @@
+package proj6;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import sortcomparisons.AllocationMonitor;
+import sortcomparisons.OperationCounter;
+
+/**
+ * Sorts an array with a parallel, stable merge sort on a work-stealing
+ * ForkJoinPool. The array is cut into about LEAVES_PER_THREAD chunks per
+ * thread, each of which is merge sorted sequentially, and the chunks are then
+ * merged pairwise up a tree. Unlike QuickSort, whose first partition runs on a
+ * single thread over the whole array, every level here is split across the
+ * threads: each merge is itself cut into pieces of about MERGE_GRAIN output
+ * elements by co-ranking, a binary search that finds how many elements of
+ * each run come before a given output position, and the pieces are merged
+ * concurrently.
+ *
+ * Equal elements keep their original order, since both the sequential sort
+ * and every merge take from the left run on ties. The sort needs a buffer as
+ * large as the array, and the levels alternate between the two, so nothing is
+ * copied back at the end.
+ *
+ * @author Alex Laird
+ * @author Ryan Morehart
+ */
+public class MergeSort
+{
+    /** The number of leaf chunks per thread, so that a thread that finishes early can take another.*/
+    public static final int LEAVES_PER_THREAD = 4;
+    /** The smallest leaf chunk, below which the forking costs more than it saves.*/
+    public static final int MIN_LEAF_SIZE = 1 << 13;
+    /** The number of output elements below which a merge is done by one thread.*/
+    public static final int MERGE_GRAIN = 1 << 14;
+    /** The run length below which the sequential sort uses insertion sort.*/
+    private static final int INSERTION_CUTOFF = 7;
+
+    /** The back-reference to the class containing the progress of the sort.*/
+    private final Project6 proj6;
+    /** The number of threads to sort with.*/
+    private final int numThreads;
+
+    /**
+     * Construct a merge sort, giving it a class reference containing the
+     * progress of the sort.
+     *
+     * @param proj6 Pass the reference to the class containing the progress of the sort.
+     * @param numThreads The number of threads to sort with.
+     */
+    public MergeSort (Project6 proj6,
+                      int numThreads)
+    {
+        this.proj6 = proj6;
+        this.numThreads = numThreads;
+    }
+
+    /**
+     * Sort the array. If the sort is cancelled or a worker fails, this
+     * returns early, leaving the array partly sorted, and the failure is left
+     * for Project6 to report.
+     *
+     * @param array The array to be sorted.
+     */
+    public void sort (int[] array)
+    {
+        int n = array.length;
+        int[] buffer = new int[n];
+        int leafSize = (int) Math.max (MIN_LEAF_SIZE, ((long) n + numThreads * LEAVES_PER_THREAD - 1) / (numThreads * LEAVES_PER_THREAD));
+        if (numThreads <= 1 || n <= leafSize)
+        {
+            System.arraycopy (array, 0, buffer, 0, n);
+            sequentialSort (buffer, array, 0, n);
+            proj6.getProgress ().finalized (n);
+            return;
+        }
+
+        ForkJoinPool pool = new ForkJoinPool (numThreads, AllocationMonitor.forkJoinThreadFactory (), null, false);
+        try
+        {
+            proj6.getProgress ().taskStarted ();
+            pool.invoke (new SortAction (array, buffer, 0, n, true, leafSize));
+        }
+        catch (Throwable ex)
+        {
+            // The actions record their own failures first, but record this too in case the pool failed before any
+            // action ran, for Project6 to report
+            proj6.workerFailed (ex);
+        }
+        finally
+        {
+            pool.shutdown ();
+        }
+    }
+
+    /**
+     * Stable merge sort of indeces low (inclusive) through high (exclusive),
+     * from src into dest. Both arrays must hold the same elements in the range
+     * beforehand; src is used as scratch space.
+     *
+     * @param src The array to sort from.
+     * @param dest The array to leave the sorted range in.
+     * @param low The lowest index.
+     * @param high One past the highest index.
+     */
+    private static void sequentialSort (int[] src,
+                                        int[] dest,
+                                        int low,
+                                        int high)
+    {
+        // Insertion sort short runs, shifting only past strictly larger elements to stay stable
+        if (high - low < INSERTION_CUTOFF)
+        {
+            for (int i = low + 1; i < high; ++i)
+            {
+                int value = dest[i];
+                int j = i - 1;
+                while (j >= low && OperationCounter.compare (dest[j] > value))
+                {
+                    dest[j + 1] = dest[j];
+                    --j;
+                }
+                dest[j + 1] = value;
+                OperationCounter.move (i - j);
+            }
+            return;
+        }
+
+        // Sort each half into src, using dest as scratch, then merge them back into dest
+        int mid = (low + high) >>> 1;
+        sequentialSort (dest, src, low, mid);
+        sequentialSort (dest, src, mid, high);
+
+        // If the halves are already in order, there is nothing to merge
+        if (OperationCounter.compare (src[mid - 1] <= src[mid]))
+        {
+            System.arraycopy (src, low, dest, low, high - low);
+            OperationCounter.move (high - low);
+            return;
+        }
+        merge (src, low, mid, src, mid, high, dest, low);
+    }
+
+    /**
+     * Stable sequential merge of two sorted runs, taking from the first run
+     * on ties.
+     *
+     * @param a The array holding the first run.
+     * @param aLow The first index of the first run.
+     * @param aHigh One past the last index of the first run.
+     * @param b The array holding the second run.
+     * @param bLow The first index of the second run.
+     * @param bHigh One past the last index of the second run.
+     * @param dest The array to merge into.
+     * @param destLow The index of dest to merge into.
+     */
+    private static void merge (int[] a,
+                               int aLow,
+                               int aHigh,
+                               int[] b,
+                               int bLow,
+                               int bHigh,
+                               int[] dest,
+                               int destLow)
+    {
+        int count = (aHigh - aLow) + (bHigh - bLow);
+        int i = aLow;
+        int j = bLow;
+        int k = destLow;
+        while (i < aHigh && j < bHigh)
+        {
+            if (OperationCounter.compare (a[i] <= b[j]))
+            {
+                dest[k++] = a[i++];
+            }
+            else
+            {
+                dest[k++] = b[j++];
+            }
+        }
+        System.arraycopy (a, i, dest, k, aHigh - i);
+        System.arraycopy (b, j, dest, k + aHigh - i, bHigh - j);
+        OperationCounter.move (count);
+    }
+
+    /**
+     * Co-rank an output position of the merge of two sorted runs: find how
+     * many of the first rank output elements come from the first run, given
+     * that the first run wins ties. This is a binary search over the split
+     * point, so each piece of a merge can be found without merging what comes
+     * before it.
+     *
+     * @param rank The output position, from 0 to the total length of the runs.
+     * @param a The array holding the first run.
+     * @param aLow The first index of the first run.
+     * @param aLength The length of the first run.
+     * @param b The array holding the second run.
+     * @param bLow The first index of the second run.
+     * @param bLength The length of the second run.
+     * @return The number of elements of the first run that come before the position.
+     */
+    private static int coRank (int rank,
+                               int[] a,
+                               int aLow,
+                               int aLength,
+                               int[] b,
+                               int bLow,
+                               int bLength)
+    {
+        int low = Math.max (0, rank - bLength);
+        int high = Math.min (rank, aLength);
+        while (low < high)
+        {
+            int j = (low + high) >>> 1;
+            // Take more of the first run while its next element does not come after the last one taken from the second
+            if (OperationCounter.compare (a[aLow + j] <= b[bLow + rank - j - 1]))
+            {
+                low = j + 1;
+            }
+            else
+            {
+                high = j;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * A fork/join action that sorts a range, leaving the result in either
+     * the array or the buffer.
+     */
+    private class SortAction extends RecursiveAction
+    {
+        /** The version of the serialized form, which RecursiveAction, being Serializable, calls for.*/
+        private static final long serialVersionUID = 1L;
+        /** The array being sorted.*/
+        private final int[] array;
+        /** The buffer, as large as the array.*/
+        private final int[] buffer;
+        /** The lowest index of the range.*/
+        private final int low;
+        /** One past the highest index of the range.*/
+        private final int high;
+        /** True to leave the sorted range in the array, false to leave it in the buffer.*/
+        private final boolean intoArray;
+        /** The largest range that is sorted sequentially.*/
+        private final int leafSize;
+
+        /**
+         * Construct a new action.
+         *
+         * @param array The array being sorted.
+         * @param buffer The buffer, as large as the array.
+         * @param low The lowest index of the range.
+         * @param high One past the highest index of the range.
+         * @param intoArray True to leave the sorted range in the array, false to leave it in the buffer.
+         * @param leafSize The largest range that is sorted sequentially.
+         */
+        SortAction (int[] array,
+                    int[] buffer,
+                    int low,
+                    int high,
+                    boolean intoArray,
+                    int leafSize)
+        {
+            this.array = array;
+            this.buffer = buffer;
+            this.low = low;
+            this.high = high;
+            this.intoArray = intoArray;
+            this.leafSize = leafSize;
+        }
+
+        /**
+         * Sort a leaf sequentially, or sort both halves in parallel into the
+         * other array and merge them back in parallel.
+         */
+        @Override
+        protected void compute()
+        {
+            try
+            {
+                proj6.checkCancelled ();
+                int[] dest = intoArray ? array : buffer;
+                int[] src = intoArray ? buffer : array;
+                if (high - low <= leafSize)
+                {
+                    System.arraycopy (array, low, buffer, low, high - low);
+                    sequentialSort (src, dest, low, high);
+                    return;
+                }
+
+                int mid = (low + high) >>> 1;
+                SortAction left = new SortAction (array, buffer, low, mid, !intoArray, leafSize);
+                SortAction right = new SortAction (array, buffer, mid, high, !intoArray, leafSize);
+                proj6.getProgress ().taskStarted ();
+                proj6.getProgress ().taskStarted ();
+                invokeAll (left, right);
+
+                proj6.checkCancelled ();
+                proj6.getProgress ().taskStarted ();
+                new MergeAction (src, low, mid, src, mid, high, dest, low, low == 0 && high == array.length).invoke ();
+            }
+            catch (Throwable ex)
+            {
+                // Record the failure before the cancellation it causes, so the master reports it rather than that
+                proj6.workerFailed (ex);
+                throw ex;
+            }
+            finally
+            {
+                proj6.getProgress ().taskFinished ();
+            }
+        }
+    }
+
+    /**
+     * A fork/join action that merges two sorted runs, splitting the output
+     * in half by co-ranking until each piece is small enough for one thread.
+     */
+    private class MergeAction extends RecursiveAction
+    {
+        /** The version of the serialized form, which RecursiveAction, being Serializable, calls for.*/
+        private static final long serialVersionUID = 1L;
+        /** The array holding the first run.*/
+        private final int[] a;
+        /** The first index of the first run.*/
+        private final int aLow;
+        /** One past the last index of the first run.*/
+        private final int aHigh;
+        /** The array holding the second run.*/
+        private final int[] b;
+        /** The first index of the second run.*/
+        private final int bLow;
+        /** One past the last index of the second run.*/
+        private final int bHigh;
+        /** The array to merge into.*/
+        private final int[] dest;
+        /** The index of dest to merge into.*/
+        private final int destLow;
+        /** True if this is part of the final merge, whose output is in its final place.*/
+        private final boolean last;
+
+        /**
+         * Construct a new action.
+         *
+         * @param a The array holding the first run.
+         * @param aLow The first index of the first run.
+         * @param aHigh One past the last index of the first run.
+         * @param b The array holding the second run.
+         * @param bLow The first index of the second run.
+         * @param bHigh One past the last index of the second run.
+         * @param dest The array to merge into.
+         * @param destLow The index of dest to merge into.
+         * @param last True if this is part of the final merge, whose output is in its final place.
+         */
+        MergeAction (int[] a,
+                     int aLow,
+                     int aHigh,
+                     int[] b,
+                     int bLow,
+                     int bHigh,
+                     int[] dest,
+                     int destLow,
+                     boolean last)
+        {
+            this.a = a;
+            this.aLow = aLow;
+            this.aHigh = aHigh;
+            this.b = b;
+            this.bLow = bLow;
+            this.bHigh = bHigh;
+            this.dest = dest;
+            this.destLow = destLow;
+            this.last = last;
+        }
+
+        /**
+         * Merge the runs, or split the merge at the middle of its output and
+         * merge both pieces in parallel.
+         */
+        @Override
+        protected void compute()
+        {
+            try
+            {
+                int aLength = aHigh - aLow;
+                int bLength = bHigh - bLow;
+                int count = aLength + bLength;
+                if (count <= MERGE_GRAIN)
+                {
+                    merge (a, aLow, aHigh, b, bLow, bHigh, dest, destLow);
+                    if (last)
+                    {
+                        proj6.getProgress ().finalized (count);
+                    }
+                    return;
+                }
+
+                proj6.checkCancelled ();
+                int half = count / 2;
+                int aSplit = aLow + coRank (half, a, aLow, aLength, b, bLow, bLength);
+                int bSplit = bLow + half - (aSplit - aLow);
+                proj6.getProgress ().taskStarted ();
+                proj6.getProgress ().taskStarted ();
+                invokeAll (new MergeAction (a, aLow, aSplit, b, bLow, bSplit, dest, destLow, last),
+                           new MergeAction (a, aSplit, aHigh, b, bSplit, bHigh, dest, destLow + half, last));
+            }
+            catch (Throwable ex)
+            {
+                proj6.workerFailed (ex);
+                throw ex;
+            }
+            finally
+            {
+                proj6.getProgress ().taskFinished ();
+            }
+        }
+    }
+}
@@ -0,0 +1,430 @@
+package proj6;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import sortcomparisons.AllocationMonitor;
+import sortcomparisons.OperationCounter;
+
+/**
+ * Partitions a large range in place on several threads, so that the top
+ * levels of a parallel QuickSort are not left to one thread while the rest
+ * wait. The range, less the pivot at its high end, is cut into blocks of
+ * BLOCK_SIZE elements, and every thread claims blocks with a fetch-and-add,
+ * some from the left end and some from the right:
+ * 1. Each thread swaps the elements greater than the pivot out of its left
+ *    block with the elements no greater than the pivot in its right block,
+ *    until one of the two is neutralized, holding only elements that belong
+ *    on its side. It then claims another block for that side, until every
+ *    block has been claimed.
+ * 2. Each thread is left with at most one block per side that it did not
+ *    neutralize. In the cleanup phase these are swapped, whole, next to the
+ *    blocks nobody claimed in the middle of the range, and that middle
+ *    stretch is partitioned sequentially.
+ *
+ * The cleanup phase covers at most two blocks per thread plus the middle, so
+ * nearly all of the work is shared across the threads. The result has the
+ * same form as Project6.partition: elements no greater than the pivot to its
+ * left, elements no less than it to its right.
+ *
+ * @author Alex Laird
+ * @author Ryan Morehart
+ */
+public class ParallelPartition
+{
+    /** The number of elements in a block.*/
+    public static final int BLOCK_SIZE = 1 << 12;
+    /** Ranges larger than this are partitioned in parallel, unless set otherwise.*/
+    public static final int DEFAULT_THRESHOLD = 1 << 18;
+
+    /** The back-reference to the class containing the sorting routine.*/
+    private final Project6 proj6;
+    /** The number of threads to partition with, including the caller.*/
+    private final int numThreads;
+    /** Ranges larger than this are partitioned in parallel.*/
+    private final int threshold;
+    /** The threads that help the caller, created on first use.*/
+    private ExecutorService helpers;
+
+    /**
+     * Construct a parallel partition, giving it a class reference containing
+     * the sorting routine.
+     *
+     * @param proj6 Pass the reference to the class containing necessary sorting routine.
+     * @param numThreads The number of threads to partition with, including the caller.
+     * @param threshold Ranges larger than this are partitioned in parallel.
+     */
+    public ParallelPartition (Project6 proj6,
+                              int numThreads,
+                              int threshold)
+    {
+        this.proj6 = proj6;
+        this.numThreads = numThreads;
+        this.threshold = Math.max (threshold, 2 * BLOCK_SIZE);
+    }
+
+    /**
+     * Check if a range is large enough to be partitioned in parallel.
+     *
+     * @param low The lowest index.
+     * @param high The highest index.
+     * @return True if the range should be partitioned in parallel, false otherwise.
+     */
+    public boolean isParallel (int low,
+                               int high)
+    {
+        return numThreads > 1 && high - low + 1 > threshold;
+    }
+
+    /**
+     * Retrieve the helper threads, creating them on first use.
+     *
+     * @return The helper threads.
+     */
+    private synchronized ExecutorService getHelpers ()
+    {
+        if (helpers == null)
+        {
+            helpers = Executors.newFixedThreadPool (numThreads - 1, AllocationMonitor.threadFactory ());
+        }
+        return helpers;
+    }
+
+    /**
+     * Release the helper threads. Partitions already started still finish.
+     */
+    public synchronized void shutdown ()
+    {
+        if (helpers != null)
+        {
+            helpers.shutdown ();
+            helpers = null;
+        }
+    }
+
+    /**
+     * Partition the range around the element at its high end, in parallel.
+     *
+     * @param array The array to be sorted.
+     * @param low The lowest index.
+     * @param high The highest index.
+     * @return The index of the partitioning point.
+     */
+    public int partition (final int[] array,
+                          final int low,
+                          final int high)
+    {
+        final int pivot = array[high];
+        final int numBlocks = (high - low) / BLOCK_SIZE;
+        final Claims claims = new Claims (numBlocks);
+        // The block each thread could not neutralize on each side, or -1
+        final int[] leftLeftover = new int[numThreads];
+        final int[] rightLeftover = new int[numThreads];
+
+        // Neutralize blocks on every thread, the caller included
+        List<Future<?>> shares = new ArrayList<Future<?>> ();
+        ExecutorService pool = getHelpers ();
+        for (int t = 1; t < numThreads; ++t)
+        {
+            final int thread = t;
+            shares.add (pool.submit (new Runnable ()
+            {
+                public void run()
+                {
+                    neutralize (array, low, high, pivot, claims, thread, leftLeftover, rightLeftover);
+                }
+            }));
+        }
+        neutralize (array, low, high, pivot, claims, 0, leftLeftover, rightLeftover);
+        for (Future<?> share : shares)
+        {
+            await (share);
+        }
+
+        // Move the blocks left over next to the unclaimed middle, then partition that stretch sequentially
+        int leftCount = claims.left.get ();
+        int rightCount = claims.right.get ();
+        int leftMoved = gatherLeftovers (array, low, high, leftLeftover, leftCount, true);
+        int rightMoved = gatherLeftovers (array, low, high, rightLeftover, rightCount, false);
+        int from = low + (leftCount - leftMoved) * BLOCK_SIZE;
+        int to = high - (rightCount - rightMoved) * BLOCK_SIZE - 1;
+        int left = partitionAround (array, from, to, pivot);
+
+        // Finally, swap the pivot into place
+        proj6.swap (array, left, high);
+        return left;
+    }
+
+    /**
+     * Wait for a thread's share of the partition, passing on anything it threw.
+     *
+     * @param share The share to wait for.
+     */
+    private static void await (Future<?> share)
+    {
+        boolean interrupted = false;
+        try
+        {
+            while (true)
+            {
+                try
+                {
+                    share.get ();
+                    return;
+                }
+                catch (InterruptedException ex)
+                {
+                    // The other threads are working on our array, so we must wait for them regardless
+                    interrupted = true;
+                }
+            }
+        }
+        catch (ExecutionException ex)
+        {
+            throw new IllegalStateException ("A thread failed while partitioning the array.", ex.getCause ());
+        }
+        finally
+        {
+            if (interrupted)
+            {
+                Thread.currentThread ().interrupt ();
+            }
+        }
+    }
+
+    /**
+     * The counters the threads claim blocks with. Each claim first takes one
+     * of the blocks, so the two sides together never claim more than there
+     * are, and then takes the next block index on its side.
+     */
+    private static class Claims
+    {
+        /** The number of blocks in the range.*/
+        private final int numBlocks;
+        /** The number of blocks claimed from either side.*/
+        private final AtomicInteger total = new AtomicInteger ();
+        /** The number of blocks claimed from the left end.*/
+        private final AtomicInteger left = new AtomicInteger ();
+        /** The number of blocks claimed from the right end.*/
+        private final AtomicInteger right = new AtomicInteger ();
+
+        /**
+         * Construct the counters for a range of numBlocks blocks.
+         *
+         * @param numBlocks The number of blocks in the range.
+         */
+        Claims (int numBlocks)
+        {
+            this.numBlocks = numBlocks;
+        }
+
+        /**
+         * Claim the next block from one end.
+         *
+         * @param side The counter of the end to claim from.
+         * @return The index of the block counted from that end, or -1 if every block has been claimed.
+         */
+        int claim (AtomicInteger side)
+        {
+            if (total.getAndIncrement () >= numBlocks)
+            {
+                return -1;
+            }
+            return side.getAndIncrement ();
+        }
+    }
+
+    /**
+     * One thread's share of the parallel phase: claim a block from each end
+     * and swap misplaced elements between them until every block is claimed.
+     *
+     * @param array The array to be sorted.
+     * @param low The lowest index.
+     * @param high The highest index, which holds the pivot.
+     * @param pivot The pivot value.
+     * @param claims The counters to claim blocks with.
+     * @param thread The index of this thread.
+     * @param leftLeftover Where to record the left block this thread did not neutralize.
+     * @param rightLeftover Where to record the right block this thread did not neutralize.
+     */
+    private void neutralize (int[] array,
+                             int low,
+                             int high,
+                             int pivot,
+                             Claims claims,
+                             int thread,
+                             int[] leftLeftover,
+                             int[] rightLeftover)
+    {
+        int leftBlock = claims.claim (claims.left);
+        int rightBlock = leftBlock == -1 ? -1 : claims.claim (claims.right);
+        int i = low + leftBlock * BLOCK_SIZE;
+        int j = high - 1 - rightBlock * BLOCK_SIZE;
+
+        while (leftBlock != -1 && rightBlock != -1)
+        {
+            int leftEnd = low + (leftBlock + 1) * BLOCK_SIZE;
+            int rightEnd = high - 1 - (rightBlock + 1) * BLOCK_SIZE;
+            while (i < leftEnd && j > rightEnd)
+            {
+                // Skip the elements already on the right side of the pivot
+                while (i < leftEnd && OperationCounter.compare (array[i] <= pivot))
+                {
+                    ++i;
+                }
+                while (j > rightEnd && OperationCounter.compare (array[j] > pivot))
+                {
+                    --j;
+                }
+                if (i < leftEnd && j > rightEnd)
+                {
+                    proj6.swap (array, i++, j--);
+                }
+            }
+
+            // Claim a fresh block for whichever side is now neutralized
+            if (i == leftEnd)
+            {
+                leftBlock = claims.claim (claims.left);
+                i = low + leftBlock * BLOCK_SIZE;
+            }
+            if (j == rightEnd && leftBlock != -1)
+            {
+                rightBlock = claims.claim (claims.right);
+                j = high - 1 - rightBlock * BLOCK_SIZE;
+            }
+        }
+
+        leftLeftover[thread] = leftBlock;
+        rightLeftover[thread] = rightBlock;
+    }
+
+    /**
+     * Swap the blocks of one side that were left over into the innermost
+     * claimed slots on that side, next to the unclaimed middle, so that every
+     * other claimed block on the side is neutralized.
+     *
+     * @param array The array to be sorted.
+     * @param low The lowest index.
+     * @param high The highest index, which holds the pivot.
+     * @param leftovers The block each thread left over on this side, or -1.
+     * @param claimed The number of blocks claimed on this side.
+     * @param leftSide True for the left side, false for the right side.
+     * @return The number of blocks left over on this side.
+     */
+    private int gatherLeftovers (int[] array,
+                                 int low,
+                                 int high,
+                                 int[] leftovers,
+                                 int claimed,
+                                 boolean leftSide)
+    {
+        int[] blocks = leftovers.clone ();
+        Arrays.sort (blocks);
+        int count = 0;
+        for (int block : blocks)
+        {
+            if (block != -1)
+            {
+                blocks[count++] = block;
+            }
+        }
+
+        // The innermost count slots are the targets; a leftover already among them stays put
+        int firstTarget = claimed - count;
+        int target = claimed - 1;
+        for (int k = 0; k < count && blocks[k] < firstTarget; ++k)
+        {
+            // Find an innermost slot that is not itself a leftover
+            while (Arrays.binarySearch (blocks, 0, count, target) >= 0)
+            {
+                --target;
+            }
+            swapBlocks (array, blockStart (low, high, blocks[k], leftSide), blockStart (low, high, target, leftSide));
+            --target;
+        }
+        return count;
+    }
+
+    /**
+     * Find the lowest index of a block.
+     *
+     * @param low The lowest index.
+     * @param high The highest index, which holds the pivot.
+     * @param block The index of the block counted from its end.
+     * @param leftSide True if the block was claimed from the left end, false if from the right end.
+     * @return The lowest index of the block.
+     */
+    private static int blockStart (int low,
+                                   int high,
+                                   int block,
+                                   boolean leftSide)
+    {
+        return leftSide ? low + block * BLOCK_SIZE : high - (block + 1) * BLOCK_SIZE;
+    }
+
+    /**
+     * Swap the contents of two blocks.
+     *
+     * @param array The array to be sorted.
+     * @param first The lowest index of one block.
+     * @param second The lowest index of the other block.
+     */
+    private void swapBlocks (int[] array,
+                             int first,
+                             int second)
+    {
+        for (int k = 0; k < BLOCK_SIZE; ++k)
+        {
+            proj6.swap (array, first + k, second + k);
+        }
+    }
+
+    /**
+     * Partition indeces low through high around a pivot value that lies
+     * outside of them, in the same way as Project6.partition.
+     *
+     * @param array The array to be sorted.
+     * @param low The lowest index.
+     * @param high The highest index.
+     * @param pivot The pivot value.
+     * @return The first index of the elements to the right of the pivot.
+     */
+    private int partitionAround (int[] array,
+                                 int low,
+                                 int high,
+                                 int pivot)
+    {
+        int left = low;
+        int right = high;
+
+        while (left <= right)
+        {
+            // Increment the low pointer until you meet the pivot
+            while (left <= right &&
+                   OperationCounter.compare (array[left] <= pivot))
+            {
+                ++left;
+            }
+            // Decrement the high pointer until you meet the pivot
+            while (left <= right &&
+                   OperationCounter.compare (array[right] >= pivot))
+            {
+                --right;
+            }
+
+            // If the pointers have crossed, swap the items
+            if (left < right)
+            {
+                proj6.swap (array, left, right);
+            }
+        }
+
+        return left;
+    }
+}
@@ -0,0 +1,187 @@
+package proj6;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import sortcomparisons.AllocationMonitor;
+
+/**
+ * Sorts arrays with the Part 4 work-stealing QuickSort for callers that must
+ * not block indefinitely, such as a server handling requests. A sort is
+ * started with sortAsync, which returns a CompletableFuture, or run with a
+ * timeout through sort. Cancelling the future cancels the sort: its workers
+ * stop at their next partition, leaving the array partly sorted. If a worker
+ * throws, the rest of the sort is cancelled and the future completes with
+ * that exception. Passing a Progress to sortAsync lets the caller poll how
+ * far the sort has got.
+ *
+ * Many sorts may run on one sorter at once, sharing its pool.
+ *
+ * @author Alex Laird
+ * @author Ryan Morehart
+ */
+public class ParallelSorter
+{
+    /** The pool the sorts run on.*/
+    private final ForkJoinPool pool;
+
+    /**
+     * Constructs a sorter with a pool of its own, which should be released
+     * with shutdown once the sorter is no longer needed.
+     *
+     * @param numThreads The number of threads in the pool.
+     */
+    public ParallelSorter (int numThreads)
+    {
+        this (new ForkJoinPool (numThreads, AllocationMonitor.forkJoinThreadFactory (), null, false));
+    }
+
+    /**
+     * Constructs a sorter that runs its sorts on the given pool.
+     *
+     * @param pool The pool to sort on.
+     */
+    public ParallelSorter (ForkJoinPool pool)
+    {
+        this.pool = pool;
+    }
+
+    /**
+     * Start sorting the array on the pool.
+     *
+     * @param proj6 The object that sorts and tracks this one array.
+     * @param array The array to be sorted.
+     * @param future The future to complete once the sort has finished, or failed.
+     * @return The root task of the sort, which completes only once no worker touches the array.
+     */
+    private ForkJoinTask<Void> start (final Project6 proj6,
+                                      final int[] array,
+                                      final CompletableFuture<int[]> future)
+    {
+        ForkJoinTask<Void> root = new RecursiveAction ()
+        {
+            @Override
+            protected void compute()
+            {
+                try
+                {
+                    proj6.part4 (0, array.length - 1, array);
+                    future.complete (array);
+                }
+                catch (Throwable ex)
+                {
+                    future.completeExceptionally (ex);
+                }
+                finally
+                {
+                    proj6.getProgress ().taskFinished ();
+                }
+            }
+        };
+        proj6.getProgress ().taskStarted ();
+        pool.execute (root);
+        return root;
+    }
+
+    /**
+     * Build a future that cancels the given sort when it is cancelled.
+     *
+     * @param proj6 The object that sorts and tracks this one array.
+     * @return The future.
+     */
+    private static CompletableFuture<int[]> newFuture (final Project6 proj6)
+    {
+        return new CompletableFuture<int[]> ()
+        {
+            @Override
+            public boolean cancel(boolean mayInterruptIfRunning)
+            {
+                proj6.cancel ();
+                return super.cancel (mayInterruptIfRunning);
+            }
+        };
+    }
+
+    /**
+     * Start sorting the array in place, returning at once. Cancelling the
+     * returned future completes it straight away, while the workers may take
+     * up to one leaf partition longer to stop touching the array.
+     *
+     * @param array The array to be sorted.
+     * @return A future that completes with the sorted array, or with the exception a worker threw.
+     */
+    public CompletableFuture<int[]> sortAsync (int[] array)
+    {
+        return sortAsync (array, new Progress (array.length));
+    }
+
+    /**
+     * Start sorting the array in place as sortAsync does, recording how far
+     * it has got in the given progress, which the caller may poll.
+     *
+     * @param array The array to be sorted.
+     * @param progress The progress to record the sort in, made for the length of the array.
+     * @return A future that completes with the sorted array, or with the exception a worker threw.
+     */
+    public CompletableFuture<int[]> sortAsync (int[] array,
+                                               Progress progress)
+    {
+        Project6 proj6 = new Project6 (pool.getParallelism ());
+        proj6.setProgress (progress);
+        CompletableFuture<int[]> future = newFuture (proj6);
+        start (proj6, array, future);
+        return future;
+    }
+
+    /**
+     * Sort the array in place, giving up if it takes longer than the timeout.
+     * Whether it finishes, fails, times out or is interrupted, this returns
+     * only once no worker touches the array any more.
+     *
+     * @param array The array to be sorted.
+     * @param timeout The longest to wait for the sort.
+     * @param unit The unit of the timeout.
+     * @return The sorted array.
+     * @throws InterruptedException If the calling thread was interrupted, which cancels the sort.
+     * @throws ExecutionException If a worker failed, with its exception as the cause.
+     * @throws TimeoutException If the sort did not finish in time, which cancels it.
+     */
+    public int[] sort (int[] array,
+                       long timeout,
+                       TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException
+    {
+        Project6 proj6 = new Project6 (pool.getParallelism ());
+        proj6.setProgress (new Progress (array.length));
+        CompletableFuture<int[]> future = newFuture (proj6);
+        ForkJoinTask<Void> root = start (proj6, array, future);
+        try
+        {
+            return future.get (timeout, unit);
+        }
+        catch (TimeoutException ex)
+        {
+            future.cancel (true);
+            root.quietlyJoin ();
+            throw ex;
+        }
+        catch (InterruptedException ex)
+        {
+            future.cancel (true);
+            root.quietlyJoin ();
+            throw ex;
+        }
+    }
+
+    /**
+     * Release the pool once the sorts already started have finished. This
+     * has no effect on the common pool.
+     */
+    public void shutdown ()
+    {
+        pool.shutdown ();
+    }
+}
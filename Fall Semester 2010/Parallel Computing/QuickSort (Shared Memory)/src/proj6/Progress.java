@@ -0,0 +1,131 @@
+package proj6;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Tracks how far a parallel sort has got: how many elements are in their
+ * final place, and how many tasks are outstanding. The counters are LongAdders,
+ * so workers update them on striped cells without contending on one lock or
+ * one cache line, and a monitor may poll them at any time without slowing the
+ * sort. A poll taken while the sort runs is a snapshot that may be slightly
+ * behind; once the sort has finished, it is exact.
+ *
+ * @author Alex Laird
+ * @author Ryan Morehart
+ */
+public class Progress
+{
+    /** The number of elements in the array being sorted.*/
+    private final long total;
+    /** The number of elements known to be in their final place.*/
+    private final LongAdder finalized = new LongAdder ();
+    /** The number of tasks or threads handed out, whether or not they have begun running.*/
+    private final LongAdder tasksStarted = new LongAdder ();
+    /** The number of tasks or threads finished.*/
+    private final LongAdder tasksFinished = new LongAdder ();
+
+    /**
+     * Construct the progress of a sort of total elements.
+     *
+     * @param total The number of elements in the array being sorted.
+     */
+    public Progress (long total)
+    {
+        this.total = total;
+    }
+
+    /**
+     * Record that elements have reached their final place, such as a pivot
+     * after partitioning or a leaf partition after it is sorted.
+     *
+     * @param n The number of elements finalized.
+     */
+    public void finalized (long n)
+    {
+        finalized.add (n);
+    }
+
+    /**
+     * Record that a task or thread has been handed out. Tasks are counted
+     * when they are submitted, so a task queued behind busy workers counts
+     * as outstanding.
+     */
+    public void taskStarted ()
+    {
+        tasksStarted.increment ();
+    }
+
+    /**
+     * Record that a task or thread has finished.
+     */
+    public void taskFinished ()
+    {
+        tasksFinished.increment ();
+    }
+
+    /**
+     * Retrieve the number of elements in the array being sorted.
+     *
+     * @return The number of elements.
+     */
+    public long getTotal ()
+    {
+        return total;
+    }
+
+    /**
+     * Retrieve the number of elements in their final place.
+     *
+     * @return The number of elements finalized.
+     */
+    public long getFinalized ()
+    {
+        return finalized.sum ();
+    }
+
+    /**
+     * Retrieve the fraction of the array that is in its final place.
+     *
+     * @return The fraction finalized, from 0 to 1.
+     */
+    public double getFraction ()
+    {
+        return total == 0 ? 1 : Math.min ((double) getFinalized () / total, 1);
+    }
+
+    /**
+     * Retrieve the number of tasks or threads handed out so far.
+     *
+     * @return The number of tasks handed out.
+     */
+    public long getTasksStarted ()
+    {
+        return tasksStarted.sum ();
+    }
+
+    /**
+     * Retrieve the number of tasks or threads handed out that have not
+     * finished, including those still queued. The finished count is read
+     * first, so a snapshot never goes below zero.
+     *
+     * @return The number of tasks outstanding.
+     */
+    public long getActiveTasks ()
+    {
+        long finished = tasksFinished.sum ();
+        return Math.max (tasksStarted.sum () - finished, 0);
+    }
+
+    /**
+     * Describe the progress in a form suitable for output.
+     *
+     * @return The progress.
+     */
+    @Override
+    public String toString ()
+    {
+        // String.format rather than the shared Utility.NUM_FORMAT, since a monitor may call this from any thread
+        return String.format ("%,d of %,d elements sorted (%.1f%%), %d tasks outstanding",
+                              getFinalized (), total, getFraction () * 100, getActiveTasks ());
+    }
+}
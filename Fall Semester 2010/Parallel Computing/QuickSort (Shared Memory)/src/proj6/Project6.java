@@ -1,51 +1,131 @@
 package proj6;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import sortcomparisons.AllocationMonitor;
+import sortcomparisons.BenchmarkResult;
+import sortcomparisons.Distribution;
+import sortcomparisons.OperationCounter;
+import sortcomparisons.SortVerifier;
+import sortcomparisons.ResultWriter;
+import sortcomparisons.Tuning;
 
 /**
- * Implements QuickSort three different ways:
+ * Implements sorting six different ways, the first five built on QuickSort:
  * 1. Perform the basic, sequential QuickSort algorithm with two-pointer
  *    partition.
- * 2. Perform QuickSort using four threads, explicitely created and invoked.
+ * 2. Perform QuickSort using numThreads threads, four unless given,
+ *    explicitely created and invoked, each given a balanced share of the
+ *    ranges left by partitioning the largest range repeatedly.
  * 3. Perform QuickSort on numThreads using Executor support from Java's
  *    concurrency libraries.
+ * 4. Perform QuickSort on numThreads using a work-stealing ForkJoinPool, where
+ *    each task forks one side of its partition and sorts the other itself.
+ * 5. Perform a sample sort on numThreads, which splits the array into evenly
+ *    sized buckets at splitters drawn from a random sample, and QuickSorts
+ *    the buckets concurrently.
+ * 6. Perform a stable merge sort on numThreads using a work-stealing
+ *    ForkJoinPool, which merge sorts chunks sequentially and then merges
+ *    them with each merge split across the threads.
+ *
+ * To sort from other code with a timeout or cancellation, use ParallelSorter,
+ * which wraps Part 4 in a CompletableFuture.
  *
  * The program can be executed with the following command:
  * Usage: java Project6 <part> [OPTIONS]
- * <part> - Valid parts are 1, 2, or 3
+ * <part> - Valid parts are 1, 2, 3, 4, 5 or 6
  *
  * Available options:
  * -s, --size    The size of the array to generate
  * -r, --random  True indicates a random array, false indicates a seeded array
  * -m, --max     Random numbers will generated between 0 (inclusive) and
  *               maxValue
- * -n, --num     Must be specified if you are desiring to run Part 3, otherwise
- *               it is ignored.
+ * -n, --num     Must be specified if you are desiring to run Part 3, Part 4,
+ *               Part 5 or Part 6. Part 2 uses four threads if it is not
+ *               given, and Part 1 ignores it.
+ * -d, --dist    The distribution of the array to generate, such as ZIPF or
+ *               ORGAN_PIPE, overriding -r
+ * -o, --out     A CSV file to append the timing to, for comparison with
+ *               sortcomparisons.ResultComparator
+ * -x, --executor The executor for Part 3: fixed, a pool of numThreads
+ *               threads, or virtual, a new virtual thread per task, which
+ *               needs Java 21 or later. Defaults to fixed.
+ * -g, --grain   The largest partition a Part 3 or Part 4 task sorts by
+ *               itself: adaptive, which sizes tasks by the array, the
+ *               threads and how many tasks are queued, or a fixed size.
+ *               Defaults to adaptive.
+ * -seed         The seed to generate the array from, so that a run can be
+ *               repeated with the same array. Defaults to a new seed each run.
+ * -cache        A directory to keep generated arrays in, which must be given
+ *               with -seed. A later run with the same array reads it from
+ *               there rather than generating it again.
  *
  * @author Alex Laird
  * @author Ryan Morehart
  */
 public class Project6
 {
-    /** The largest partition size that a task will execute for Part 3.*/
-    private final int LARGEST_SIZE = 1000;
+    /** The adaptive cutoff lets each thread have at most this many tasks, so the smallest task is this fraction of a thread's share of the array.*/
+    public static final int TASKS_PER_THREAD = 16;
+    /** Partitions at least this many times the smallest task are split however many tasks are queued, so no thread is left with a large one at the end.*/
+    public static final int EAGER_SPLIT_FACTOR = 4;
+    /** The number of threads Part 2 uses if none are given.*/
+    public static final int DEFAULT_PART2_THREADS = 4;
+    /** The number of ranges per thread Part 2 partitions the array into, so that the threads can be balanced even when the pivots are poor.*/
+    public static final int RANGES_PER_THREAD = 2;
+    /** Orders ranges, each the lowest and highest index it goes in the array, from largest to smallest.*/
+    private static final Comparator<int[]> LARGEST_FIRST = new Comparator<int[]> ()
+    {
+        public int compare(int[] first, int[] second)
+        {
+            return Integer.compare (second[1] - second[0], first[1] - first[0]);
+        }
+    };
+
+    /** The largest partition size that a task will execute for Part 3 and Part 4, unless tuned for this host; the adaptive cutoff never goes below it.*/
+    private int largestSize = Tuning.get (Tuning.PARALLEL_CUTOFF, 1000);
+    /** True to size Part 3 and Part 4 tasks by the array, the threads and the queue depth, false to split down to largestSize.*/
+    private boolean adaptiveCutoff = true;
     /** Our processor ID if we are running in parallel. If the user is not running Part 2 or Part 3, this is left at -1.*/
     private int id = -1;
-    /** In parallel algorithms, the number of threads that have completed their tasks.*/
-    private int finishedThreads = 0;
-    /** In parallel algorithms, the number of numbers that have been sorted.*/
-    private int finishedCount = 0;
-    /** The current number of tasks in use.*/
-    private int taskCount = 0;
+    /** How far the sort has got, which a monitor may poll while it runs.*/
+    private volatile Progress progress;
     /** Executor service for use in Part 3.*/
     ExecutorService pool;
-    /** The number of threads to use if performing Part 2 or Part 3.*/
+    /** True to run each Part 3 task on a virtual thread of its own, false to run them on a pool of numThreads threads.*/
+    private boolean virtualThreads = false;
+    /** True if virtual threads were asked for but the JVM could not create them, so Part 3 ran on the fixed pool instead.*/
+    private boolean virtualFallback = false;
+    /** Partitions the largest ranges in parallel for Part 2 and Part 3, or null to partition on one thread.*/
+    private ParallelPartition partitioner;
+    /** The number of threads to use if performing Part 2 through Part 6.*/
     private int numThreads = -1;
+    /** Set once the sort is cancelled, so that no worker goes on to split another partition.*/
+    private volatile boolean cancelled = false;
+    /** The number of Part 3 tasks handed to the pool that have not finished yet.*/
+    private final AtomicInteger pendingTasks = new AtomicInteger ();
+    /** Released once every Part 3 task has finished.*/
+    private final CountDownLatch tasksDone = new CountDownLatch (1);
+    /** The first exception thrown by a worker, or null if none has failed.*/
+    private final AtomicReference<Throwable> failure = new AtomicReference<Throwable> ();
 
     /**
-     * Constructs the class object with the number of threads used, if running Part 2 or Part 3.
+     * Constructs the class object with the number of threads used, if running Part 2 through Part 6.
      *
      * @param numThreads Number of threads to use.
      */
@@ -55,80 +135,335 @@ public class Project6
     }
 
     /**
-     * Increments the variable stating the number of threads finished.
+     * Create an executor that runs each task on a virtual thread of its own.
+     * It is created by reflection, so that the project still builds and runs
+     * on Java versions without virtual threads. Java 19 and 20 have the
+     * method, but as a preview that throws unless the JVM was started with
+     * --enable-preview.
+     *
+     * @return The executor, or null if the JVM cannot create virtual threads.
+     */
+    private static ExecutorService newVirtualThreadExecutor()
+    {
+        try
+        {
+            return (ExecutorService) Executors.class.getMethod ("newVirtualThreadPerTaskExecutor").invoke (null);
+        }
+        catch (ReflectiveOperationException ex)
+        {
+            // Either there is no such method, or it threw because virtual threads are a disabled preview
+            return null;
+        }
+        catch (UnsupportedOperationException ex)
+        {
+            return null;
+        }
+    }
+
+    /**
+     * Check if the JVM can create virtual threads, which it can from Java 21,
+     * or from Java 19 with --enable-preview.
+     *
+     * @return True if virtual threads are available, false otherwise.
+     */
+    public static boolean virtualThreadsSupported()
+    {
+        ExecutorService executor = newVirtualThreadExecutor ();
+        if (executor == null)
+        {
+            return false;
+        }
+        executor.shutdown ();
+        return true;
+    }
+
+    /**
+     * Set whether Part 3 runs each task on a virtual thread of its own,
+     * rather than on a pool of numThreads threads. The carrier threads under
+     * the virtual threads are sized by the JVM, so numThreads then only sets
+     * the threads used for the parallel partition. The allocation of virtual
+     * threads may not show up in the allocation measurements.
+     *
+     * @param virtualThreads True to use virtual threads, falling back on the fixed pool if virtualThreadsSupported is false.
+     */
+    public void setVirtualThreads(boolean virtualThreads)
+    {
+        this.virtualThreads = virtualThreads;
+    }
+
+    /**
+     * Check if virtual threads were asked for but could not be created, so
+     * that Part 3 ran on a fixed pool of numThreads threads instead.
+     *
+     * @return True if Part 3 fell back on the fixed pool, false otherwise.
+     */
+    public boolean isVirtualFallback()
+    {
+        return virtualFallback;
+    }
+
+    /**
+     * Create the executor for Part 3. If virtual threads were asked for but
+     * the JVM cannot create them, the fixed pool is used instead, and the
+     * fallback is recorded so the run is not mistaken for either.
+     *
+     * @return The executor.
+     */
+    private ExecutorService newPart3Pool()
+    {
+        if (virtualThreads)
+        {
+            ExecutorService executor = newVirtualThreadExecutor ();
+            if (executor != null)
+            {
+                return executor;
+            }
+            virtualFallback = true;
+        }
+        return Executors.newFixedThreadPool (numThreads, AllocationMonitor.threadFactory ());
+    }
+
+    /**
+     * Set the largest partition size that a task will execute for Part 3 and
+     * Part 4 without splitting it further, turning the adaptive cutoff off.
+     *
+     * @param largestSize The largest partition size a task sorts by itself.
+     */
+    public void setLargestSize(int largestSize)
+    {
+        this.largestSize = largestSize;
+        this.adaptiveCutoff = false;
+    }
+
+    /**
+     * Set whether Part 3 and Part 4 size their tasks adaptively. Rather than
+     * splitting every partition down to largestSize, which for a large array
+     * hands out tens of thousands of tasks, the adaptive cutoff stops at a
+     * fraction of each thread's share of the array, and below a few times
+     * that only splits while fewer tasks are queued than there are threads.
+     *
+     * @param adaptiveCutoff True to size tasks adaptively, false to split down to largestSize.
      */
-    protected synchronized void threadFinished(int id)
+    public void setAdaptiveCutoff(boolean adaptiveCutoff)
     {
-        ++finishedThreads;
+        this.adaptiveCutoff = adaptiveCutoff;
     }
 
     /**
-     * Check if the number of slave threads reporting they have finished working
-     * is equal to the number of slave threads spawned.
+     * Decide whether a partition is worth splitting into another task, or
+     * should be sorted by the task that has it.
      *
-     * @return True if all spawned threads have finished, false otherwise.
+     * @param size The number of elements in the partition.
+     * @param queuedTasks The number of tasks waiting for a thread.
+     * @return True to split the partition, false to sort it.
      */
-    private synchronized boolean waitingForThreads()
+    private boolean shouldSplit(int size,
+                                int queuedTasks)
     {
-        if (finishedThreads == numThreads)
+        if (!adaptiveCutoff)
         {
-            return true;
+            return size >= largestSize;
         }
-        return false;
+
+        int threads = Math.max (numThreads, 1);
+        long grainSize = Math.max (progress.getTotal () / ((long) threads * TASKS_PER_THREAD), largestSize);
+        if (size < grainSize)
+        {
+            return false;
+        }
+        // Split large partitions regardless, and smaller ones only while a thread may soon run out of work
+        return size >= grainSize * EAGER_SPLIT_FACTOR || queuedTasks < threads;
     }
 
     /**
-     * Check if the number of sorted items equals the total number of elements
-     * in the array.
+     * Retrieve the number of Part 3 tasks waiting for a thread. An executor
+     * without a queue of its own, such as one with a virtual thread per task,
+     * counts the pending tasks beyond one per thread.
      *
-     * @param size The number of elements total in the array.
-     * @return True if all elements have been sorted, false otherwise.
+     * @return The number of tasks waiting.
      */
-    private synchronized boolean waitingForCount(int size)
+    private int queuedTasks()
     {
-        if (getFinishedCount () != size)
+        if (pool instanceof ThreadPoolExecutor)
         {
-            return true;
+            return ((ThreadPoolExecutor) pool).getQueue ().size ();
         }
-        return false;
+        return Math.max (pendingTasks.get () - numThreads, 0);
+    }
+
+    /**
+     * Ask the sort to stop. Workers check for cancellation before each
+     * partition they split off, and give up with a CancellationException, so
+     * a parallel sort stops within one leaf partition's worth of work. The
+     * array is left partly sorted.
+     */
+    public void cancel()
+    {
+        cancelled = true;
     }
 
     /**
-     * Increment the finished counter by the given number n.
+     * Check if the sort has been cancelled, either by cancel or because a
+     * worker failed.
      *
-     * @param n The amount to increment the finished counter by.
+     * @return True if the sort has been cancelled, false otherwise.
      */
-    protected synchronized void addToFinishedCount (int n)
+    public boolean isCancelled()
     {
-        finishedCount += n;
+        return cancelled;
     }
-    
+
     /**
-     * Retrieve the number of finished threads.
+     * Give up on the current partition if the sort has been cancelled.
      *
-     * @return The number of finished threads.
+     * @throws CancellationException If the sort has been cancelled.
      */
-    private synchronized int getFinishedCount()
+    protected void checkCancelled()
     {
-        return finishedCount;
+        if (cancelled)
+        {
+            throw new CancellationException ("The sort was cancelled.");
+        }
     }
 
     /**
-     * Increment the current number of tasks in use by one.
+     * Record an exception thrown by a worker and cancel the rest of the sort,
+     * so the master can stop waiting and report it.
+     *
+     * @param ex The exception the worker threw.
      */
-    protected synchronized void incrementTaskCount()
+    protected void workerFailed(Throwable ex)
     {
-        ++taskCount;
+        failure.compareAndSet (null, ex);
+        cancel ();
     }
 
     /**
-     * Retrieve the current number of tasks running.
+     * Report the first exception recorded by workerFailed, if any, to the
+     * master thread.
      *
-     * @return The number of tasks running.
+     * @throws CancellationException If the sort was cancelled before it finished.
+     * @throws IllegalStateException If a worker failed, with its exception as the cause.
      */
-    protected synchronized int getTaskCount()
+    private void rethrowFailure()
     {
-        return taskCount;
+        Throwable ex = failure.get ();
+        if (ex instanceof CancellationException)
+        {
+            throw (CancellationException) ex;
+        }
+        else if (ex != null)
+        {
+            throw new IllegalStateException ("A worker failed while sorting the array.", ex);
+        }
+    }
+
+    /**
+     * Hand a partition to the Part 3 pool as a new task.
+     *
+     * @param low The lowest index.
+     * @param high The highest index.
+     * @param array The array to be sorted.
+     */
+    private void submitTask(int low,
+                            int high,
+                            int[] array)
+    {
+        pendingTasks.incrementAndGet ();
+        progress.taskStarted ();
+        pool.execute (new QuickSortTask (this, low, high, array));
+    }
+
+    /**
+     * Record that a Part 3 task has finished, successfully or not, and release
+     * the master once the last one has.
+     */
+    protected void taskFinished()
+    {
+        progress.taskFinished ();
+        if (pendingTasks.decrementAndGet () == 0)
+        {
+            tasksDone.countDown ();
+        }
+    }
+
+    /**
+     * Block until every Part 3 task has finished. If the master is interrupted,
+     * the sort is cancelled and the master keeps waiting for the workers to
+     * stop, so that nothing touches the array once runPart has returned; the
+     * interrupt is then restored.
+     */
+    private void awaitTasks()
+    {
+        boolean interrupted = false;
+        while (true)
+        {
+            try
+            {
+                tasksDone.await ();
+                break;
+            }
+            catch (InterruptedException ex)
+            {
+                interrupted = true;
+                cancel ();
+            }
+        }
+        if (interrupted)
+        {
+            Thread.currentThread ().interrupt ();
+        }
+    }
+
+    /**
+     * Block until a Part 2 thread has finished, cancelling the sort if the
+     * master is interrupted in the same way as awaitTasks.
+     *
+     * @param thread The thread to wait for.
+     */
+    private void awaitThread(Thread thread)
+    {
+        boolean interrupted = false;
+        while (true)
+        {
+            try
+            {
+                thread.join ();
+                break;
+            }
+            catch (InterruptedException ex)
+            {
+                interrupted = true;
+                cancel ();
+            }
+        }
+        if (interrupted)
+        {
+            Thread.currentThread ().interrupt ();
+        }
+    }
+
+    /**
+     * Set the object that tracks the progress of the sort, so that a caller
+     * can poll it while runPart is running. If none is set, runPart creates
+     * one.
+     *
+     * @param progress The progress of the sort.
+     */
+    public void setProgress(Progress progress)
+    {
+        this.progress = progress;
+    }
+
+    /**
+     * Retrieve the progress of the sort, which may be polled from another
+     * thread while the sort runs.
+     *
+     * @return The progress of the sort, or null if no sort has started.
+     */
+    public Progress getProgress()
+    {
+        return progress;
     }
 
     /**
@@ -142,6 +477,7 @@ public class Project6
                      int first,
                      int second)
     {
+        OperationCounter.swap ();
         int temp = array[first];
         array[first] = array[second];
         array[second] = temp;
@@ -168,13 +504,13 @@ public class Project6
         {
             // Increment the low pointer until you meet the pivot
             while (left <= right &&
-                   array[left] <= pivot)
+                   OperationCounter.compare (array[left] <= pivot))
             {
                 ++left;
             }
             // Decrement the high pointer until you meet the pivot
             while (left <= right &&
-                   array[right] >= pivot)
+                   OperationCounter.compare (array[right] >= pivot))
             {
                 --right;
             }
@@ -193,9 +529,111 @@ public class Project6
         return left;
     }
 
+    /**
+     * Partitions a range for Part 2 or Part 3, on several threads if the
+     * range is large enough, and on this one otherwise.
+     *
+     * @param array The array to be sorted.
+     * @param low The lowest index.
+     * @param high The highest index.
+     * @return The index of the partitioning point.
+     */
+    private int splitPartition(int[] array,
+                               int low,
+                               int high)
+    {
+        if (partitioner != null && partitioner.isParallel (low, high))
+        {
+            return partitioner.partition (array, low, high);
+        }
+        return partition (array, low, high);
+    }
+
+    /**
+     * Partition the largest range of the array, then the largest of the
+     * ranges left, and so on until there are enough ranges for Part 2. Each
+     * pivot is in its final place once partitioned, so it is left out of the
+     * ranges, as are empty ranges.
+     *
+     * @param array The array to be sorted.
+     * @param count The number of ranges wanted, which is fewer only if every range is down to one element.
+     * @return The ranges, each the lowest and highest index it goes in the array.
+     */
+    private List<int[]> splitRanges(int[] array,
+                                    int count)
+    {
+        PriorityQueue<int[]> ranges = new PriorityQueue<int[]> (count + 1, LARGEST_FIRST);
+        if (array.length > 0)
+        {
+            ranges.add (new int[] {0, array.length - 1});
+        }
+
+        while (!ranges.isEmpty () && ranges.size () < count && ranges.peek ()[1] > ranges.peek ()[0])
+        {
+            checkCancelled ();
+            int[] range = ranges.poll ();
+            // Identify partition point, on several threads if the range is still large
+            int mid = splitPartition (array, range[0], range[1]);
+            OperationCounter.split (range[0], mid, range[1]);
+            progress.finalized (1);
+
+            if (mid > range[0])
+            {
+                ranges.add (new int[] {range[0], mid - 1});
+            }
+            if (mid < range[1])
+            {
+                ranges.add (new int[] {mid + 1, range[1]});
+            }
+        }
+
+        return new ArrayList<int[]> (ranges);
+    }
+
+    /**
+     * Deal the ranges out to the threads largest first, each to the thread
+     * with the fewest elements so far, so the threads finish at nearly the
+     * same time.
+     *
+     * @param ranges The ranges to deal out, each the lowest and highest index it goes in the array.
+     * @param threads The number of threads.
+     * @return The ranges of each thread.
+     */
+    private static List<List<int[]>> assignRanges(List<int[]> ranges,
+                                                  int threads)
+    {
+        List<int[]> sorted = new ArrayList<int[]> (ranges);
+        Collections.sort (sorted, LARGEST_FIRST);
+
+        List<List<int[]>> assignments = new ArrayList<List<int[]>> ();
+        long[] loads = new long[threads];
+        for (int i = 0; i < threads; ++i)
+        {
+            assignments.add (new ArrayList<int[]> ());
+        }
+        for (int[] range : sorted)
+        {
+            int lightest = 0;
+            for (int i = 1; i < threads; ++i)
+            {
+                if (loads[i] < loads[lightest])
+                {
+                    lightest = i;
+                }
+            }
+            assignments.get (lightest).add (range);
+            loads[lightest] += range[1] - range[0] + 1;
+        }
+
+        return assignments;
+    }
+
     /**
      * Performs a standard recursive QuickSort algorithm on an array from
-     * indeces high to low.
+     * indeces high to low. Only the smaller half of each partition is sorted
+     * recursively, while the larger half is sorted by looping, so the
+     * recursion is never more than O(log n) deep, even when the pivots are
+     * poor, as they are on runs of equal values.
      *
      * @param array The array to be sorted.
      * @param low The lowest index.
@@ -205,20 +643,32 @@ public class Project6
                         int low,
                         int high)
     {
-        if (low < high)
+        OperationCounter.enter ();
+        while (low < high)
         {
             // Locate the most precise partition point
             int mid = partition (array, low, high);
-            // Recursively sort the lower half
-            sort (array, low, mid - 1);
-            // Recursively sort the upper half
-            sort (array, mid + 1, high);
+            OperationCounter.split (low, mid, high);
+            // Recursively sort the smaller half, then carry on with the larger half
+            if (mid - low < high - mid)
+            {
+                sort (array, low, mid - 1);
+                low = mid + 1;
+            }
+            else
+            {
+                sort (array, mid + 1, high);
+                high = mid - 1;
+            }
         }
+        OperationCounter.exit ();
     }
 
     /**
      * Continue passing partitions out to threads until the partition size is small
-     * enough for us to handle ourselves, backing out of recursion.
+     * enough for us to handle ourselves. The lower half of each partition is
+     * carried on with by looping rather than recursing, so poor pivots cannot
+     * overflow the stack.
      *
      * @param low The lowest index.
      * @param high The highest index.
@@ -228,137 +678,426 @@ public class Project6
                          int high,
                          int[] array)
     {
-        if (high - low + 1 < LARGEST_SIZE)
+        checkCancelled ();
+        while (shouldSplit (high - low + 1, queuedTasks ()))
         {
-            // The partition is small enough, so do the work ourselves
-            sort (array, low, high);
-            addToFinishedCount (high - low + 1);
-        }
-        else
-        {
-            // Identify partition point
-            int mid = partition (array, low, high);
-            addToFinishedCount (1);
+            // Identify partition point, on several threads if the partition is still large
+            int mid = splitPartition (array, low, high);
+            OperationCounter.split (low, mid, high);
+            progress.finalized (1);
 
             // Launch slave task
-            pool.execute (new QuickSortTask (this, getTaskCount (), mid + 1, high, array));
-            incrementTaskCount ();
+            submitTask (mid + 1, high, array);
 
-            // Recurse to assign the lower half to its thread
-            part3(low, mid - 1, array);
+            // Carry on to assign the lower half to its thread
+            high = mid - 1;
+            checkCancelled ();
         }
+        // The partition is small enough, so do the work ourselves
+        sort (array, low, high);
+        progress.finalized (high - low + 1);
     }
 
     /**
-     * Generate the array, sort it using the correct method for the given part,
-     * and benchmark.
+     * Split partitions off as fork/join actions until the partition size is
+     * small enough for us to handle ourselves. The smaller half of each
+     * partition is forked, so an idle worker can steal it, while this thread
+     * loops on the larger half; once that is sorted, the forked halves are
+     * joined, helping with other actions while any of them is not finished
+     * yet. Since a forked half is never more than half its range, actions
+     * only nest O(log n) deep inside joins, even when the pivots are poor.
      *
-     * @param part The part of the problem to perform.  Value use be 1, 2, or 3
-     * @param size The size of the array to sort.
-     * @param random True if numbers should be generated randomly, false if they should follow a pattern
-     * @param maxValue The maximum value a randomly generated number can be
+     * If this action fails or is cancelled, the failure is recorded and the
+     * whole sort is cancelled, and the forked halves are still joined before
+     * the exception propagates, so once the root action completes no worker
+     * touches the array.
+     *
+     * @param low The lowest index.
+     * @param high The highest index.
+     * @param array The array to be sorted.
      */
-    private void go(int part,
-                    int size,
-                    boolean random,
-                    int maxValue)
+    protected void part4(int low,
+                         int high,
+                         int[] array)
     {
-        // Generate array, output if length is reasonable, and declare time variables before
-        // starting the time count, so as to not effect performance
-        int[] array = Utility.buildArray (size, random, maxValue);
-        // Copy the array to an unsorted array location for verification after the fact
-        int[] unsortedArray = Arrays.copyOf (array, array.length);
-        System.out.println ("::Part " + part + "::");
-        System.out.println ("Array size: " + Utility.NUM_FORMAT.format (size));
-        if (array.length <= 25)
+        // The most recently forked action, which links to the ones forked before it
+        QuickSortAction forked = null;
+        boolean completed = false;
+
+        try
         {
-            System.out.print ("Initial array: ");
-            Utility.printArray (array);
+            while (shouldSplit (high - low + 1, ForkJoinTask.getSurplusQueuedTaskCount ()))
+            {
+                checkCancelled ();
+                // Identify partition point
+                int mid = partition (array, low, high);
+                OperationCounter.split (low, mid, high);
+                progress.finalized (1);
+
+                // Split off the smaller half and carry on with the larger half ourselves
+                int smallLow = low;
+                int smallHigh = mid - 1;
+                if (mid - low < high - mid)
+                {
+                    low = mid + 1;
+                }
+                else
+                {
+                    smallLow = mid + 1;
+                    smallHigh = high;
+                    high = mid - 1;
+                }
+
+                // Fork the smaller half, unless it is small enough to sort right away
+                if (!shouldSplit (smallHigh - smallLow + 1, ForkJoinTask.getSurplusQueuedTaskCount ()))
+                {
+                    sort (array, smallLow, smallHigh);
+                    progress.finalized (smallHigh - smallLow + 1);
+                }
+                else
+                {
+                    forked = new QuickSortAction (this, smallLow, smallHigh, array, forked);
+                    progress.taskStarted ();
+                    forked.fork ();
+                }
+            }
+            // The partition is small enough, so do the work ourselves
+            checkCancelled ();
+            sort (array, low, high);
+            progress.finalized (high - low + 1);
+            completed = true;
         }
-        
-        long startTime = -1;
-        long endTime = -1;
+        catch (Throwable ex)
+        {
+            // Record the failure before the cancellation it causes, so the master reports it rather than that
+            workerFailed (ex);
+            throw ex;
+        }
+        finally
+        {
+            // Wait for the halves we forked, which stop early if we failed
+            Throwable error = null;
+            while (forked != null)
+            {
+                forked.quietlyJoin ();
+                if (error == null)
+                {
+                    error = forked.getException ();
+                }
+                forked = forked.next;
+            }
+            // Surface a forked half's failure, unless we are already propagating our own
+            if (completed && error instanceof RuntimeException)
+            {
+                throw (RuntimeException) error;
+            }
+            else if (completed && error instanceof Error)
+            {
+                throw (Error) error;
+            }
+        }
+    }
 
-        // Mark beginning time for calculation later
-        startTime = System.currentTimeMillis();
+    /**
+     * Sort the array using the correct method for the given part. A new
+     * Project6 object must be used for each call, since the parallel parts
+     * track their progress in its counters.
+     *
+     * The master thread blocks until every worker has stopped, rather than
+     * spinning. If a worker throws, the rest of the sort is cancelled and the
+     * exception is rethrown here once the other workers have stopped. Part 3
+     * and Part 4 check for cancellation between partitions, Part 5 between
+     * its phases and buckets, Part 6 between its merges, and Part 2 between
+     * its ranges.
+     *
+     * @param part The part of the problem to perform.  Value use be 1, 2, 3, 4, 5 or 6
+     * @param array The array to be sorted.
+     * @throws CancellationException If the sort was cancelled before it finished.
+     * @throws IllegalStateException If a worker failed, with its exception as the cause.
+     */
+    public void runPart(int part,
+                        int[] array)
+    {
+        // Track progress for anything polling it, unless the caller has set up its own
+        if (progress == null)
+        {
+            progress = new Progress (array.length);
+        }
 
         // Perform the basic, sequential QuickSort algorithm with two-pointer partition
         if (part == 1)
         {
             sort (array, 0, array.length - 1);
+            progress.finalized (array.length);
         }
-        // Perform QuickSort using four threads, explicitely created and invoked
+        // Perform QuickSort using numThreads threads, explicitely created and invoked
         else if (part == 2)
         {
             // Set this processor's ID
             id = 0;
-            // Set the number of slave threads
-            numThreads = 3;
-            
-            int low = 0;
-            int high = array.length - 1;
-            // Identify partition points for master and slaves
-            int mid = partition (array, low, high);
-            int first = partition (array, low, mid - 1);
-            int second = partition (array, mid + 1, high);
+            // Set the number of slave threads, four as always unless told otherwise
+            if (numThreads < 1)
+            {
+                numThreads = DEFAULT_PART2_THREADS;
+            }
+            checkCancelled ();
+
+            // Identify partition points for the slaves, spreading each large partition over all the threads
+            partitioner = new ParallelPartition (this, numThreads, ParallelPartition.DEFAULT_THRESHOLD);
+            List<int[]> ranges;
+            try
+            {
+                ranges = splitRanges (array, numThreads * RANGES_PER_THREAD);
+            }
+            finally
+            {
+                partitioner.shutdown ();
+            }
 
-            // Instantiate slave threads and pass them their partition portions
-            QuickSortThread thread2 = new QuickSortThread (this, 1, first + 1, mid - 1, array);
-            QuickSortThread thread3 = new QuickSortThread (this, 2, mid + 1, second - 1, array);
-            QuickSortThread thread4 = new QuickSortThread (this, 3, second + 1, high, array);
+            // Instantiate slave threads and pass them their balanced share of the ranges
+            List<List<int[]>> assignments = assignRanges (ranges, numThreads);
+            QuickSortThread[] threads = new QuickSortThread[numThreads];
+            for (int i = 0; i < numThreads; ++i)
+            {
+                threads[i] = new QuickSortThread (this, i + 1, assignments.get (i), array);
+            }
 
             // Launch slave threads
-            thread2.start ();
-            thread3.start ();
-            thread4.start ();
-            // Current thread is the first thread, so let it do the lowest part
-            sort (array, low, first - 1);
+            for (QuickSortThread thread : threads)
+            {
+                thread.start ();
+            }
 
-            // Wait for all threads to finish
-            while (!waitingForThreads ())
+            // Wait for all threads to finish, then report any of them that failed
+            for (QuickSortThread thread : threads)
             {
-                continue;
+                awaitThread (thread);
             }
+            rethrowFailure ();
         }
         // Perform QuickSort on numThreads using Executor support from Java's concurrency libraries
         else if (part == 3)
         {
-            // Set this processor's ID and increment task count
+            // Set this processor's ID
             id = 0;
-            incrementTaskCount ();
 
-            // Launch slave task
-            pool = Executors.newFixedThreadPool (numThreads);
-            pool.execute (new QuickSortTask (this, getTaskCount (), 0, array.length - 1, array));
-            incrementTaskCount ();
+            // Launch slave task, with the partitions of the largest ranges spread over numThreads threads
+            pool = newPart3Pool ();
+            partitioner = new ParallelPartition (this, numThreads, ParallelPartition.DEFAULT_THRESHOLD);
+            try
+            {
+                submitTask (0, array.length - 1, array);
+
+                // Wait for every task to finish, then report any of them that failed
+                awaitTasks ();
+            }
+            finally
+            {
+                pool.shutdown();
+                partitioner.shutdown ();
+            }
+            rethrowFailure ();
+        }
+        // Perform QuickSort on numThreads using a work-stealing ForkJoinPool
+        else if (part == 4)
+        {
+            // The master thread waits in invoke without spinning, and the workers share only the striped progress counters
+            ForkJoinPool forkJoinPool = new ForkJoinPool (numThreads, AllocationMonitor.forkJoinThreadFactory (), null, false);
+            try
+            {
+                progress.taskStarted ();
+                forkJoinPool.invoke (new QuickSortAction (this, 0, array.length - 1, array, null));
+            }
+            catch (Throwable ex)
+            {
+                // The actions record their own failures first, but record this too in case the pool failed before any
+                // action ran; either way it is reported below as for the other parts
+                workerFailed (ex);
+            }
+            finally
+            {
+                forkJoinPool.shutdown ();
+            }
+            rethrowFailure ();
+        }
+        // Perform a sample sort on numThreads, splitting at sampled splitters rather than by partitioning
+        else if (part == 5)
+        {
+            new SampleSort (this, numThreads).sort (array);
+            rethrowFailure ();
+        }
+        // Perform a stable merge sort on numThreads, merging in parallel by co-ranking
+        else if (part == 6)
+        {
+            new MergeSort (this, numThreads).sort (array);
+            rethrowFailure ();
+        }
+    }
+
+    /**
+     * Generate the array from the seed, or read it from the cache directory if
+     * an earlier run has already generated it there.
+     *
+     * @param size The size of the array to sort.
+     * @param random True if numbers should be generated randomly, false if they should follow a pattern
+     * @param maxValue The maximum value a randomly generated number can be
+     * @param distribution The distribution of the array to generate, or null to generate according to random
+     * @param seed The seed to generate the array from
+     * @param cacheDir The directory to keep generated arrays in, or null to always generate them
+     * @return The array to be sorted.
+     */
+    private static int[] generateArray(int size,
+                                       boolean random,
+                                       int maxValue,
+                                       Distribution distribution,
+                                       long seed,
+                                       File cacheDir)
+    {
+        String shape = distribution != null ? distribution.name () : (random ? "RANDOM" : "INDEX");
+        File cacheFile = cacheDir != null ? new File (cacheDir, shape + "-" + size + "-" + maxValue + "-" + seed + ".bin") : null;
+        if (cacheFile != null)
+        {
+            try
+            {
+                int[] array = Utility.readArray (cacheFile, size);
+                if (array != null)
+                {
+                    return array;
+                }
+            }
+            catch (IOException ex)
+            {
+                System.out.println ("Could not read the array from " + cacheFile + ": " + ex.getMessage ());
+            }
+        }
 
-            while (waitingForCount (array.length))
+        int[] array;
+        if (distribution != null)
+        {
+            array = Utility.buildArray (size, distribution, maxValue, seed);
+        }
+        else
+        {
+            array = Utility.buildArray (size, random, maxValue, seed);
+        }
+
+        // Keep the array for the next run, which is not fatal if it fails
+        if (cacheFile != null)
+        {
+            try
+            {
+                Utility.writeArray (cacheFile, array);
+            }
+            catch (IOException ex)
             {
-                continue;
+                System.out.println ("Could not write the array to " + cacheFile + ": " + ex.getMessage ());
             }
-            pool.shutdown();
         }
+        return array;
+    }
+
+    /**
+     * Generate the array, sort it using the correct method for the given part,
+     * and benchmark.
+     *
+     * @param part The part of the problem to perform.  Value use be 1, 2, 3, 4, 5 or 6
+     * @param size The size of the array to sort.
+     * @param random True if numbers should be generated randomly, false if they should follow a pattern
+     * @param maxValue The maximum value a randomly generated number can be
+     * @param distribution The distribution of the array to generate, or null to generate according to random
+     * @param seed The seed to generate the array from
+     * @param cacheDir The directory to keep generated arrays in, or null to always generate them
+     * @param resultFile The CSV file to append the timing to, or null to only output it
+     */
+    private void go(int part,
+                    int size,
+                    boolean random,
+                    int maxValue,
+                    Distribution distribution,
+                    long seed,
+                    File cacheDir,
+                    String resultFile)
+    {
+        // Generate array and declare time variables before starting the time count, so as to
+        // not effect performance; nothing is output until the sort is over, so console I/O
+        // cannot leak into the timing
+        int[] array = generateArray (size, random, maxValue, distribution, seed, cacheDir);
+        // Fingerprint the elements for verification after the fact, which unlike a copy of the
+        // array takes no extra memory, and keep the initial array only if it will be output; the
+        // verifier's threads stay idle through the sort and are reused to verify it
+        SortVerifier verifier = new SortVerifier (Runtime.getRuntime ().availableProcessors ());
+        SortVerifier.Fingerprint fingerprint = verifier.fingerprint (array);
+        int[] initialArray = array.length <= 25 ? Arrays.copyOf (array, array.length) : null;
+        
+        long startTime = -1;
+        long endTime = -1;
+        OperationCounter.reset ();
+        AllocationMonitor sortAllocation = new AllocationMonitor ();
+        AllocationMonitor verifyAllocation = new AllocationMonitor ();
+
+        // Mark beginning time for calculation later
+        sortAllocation.begin ();
+        startTime = System.nanoTime ();
+
+        runPart (part, array);
 
         // Mark end time and calculate total runtime
-        endTime = System.currentTimeMillis();
+        endTime = System.nanoTime ();
+        sortAllocation.end ();
         long totalTime = endTime - startTime;
 
         // Output benchmark as well as results, if length is reasonable
+        System.out.println ("::Part " + part + "::");
+        System.out.println ("Array size: " + Utility.NUM_FORMAT.format (size));
+        if (distribution != null)
+        {
+            System.out.println ("Distribution: " + distribution);
+        }
+        if (distribution != null || random)
+        {
+            System.out.println ("Seed: " + seed);
+        }
+        if (array.length <= 25)
+        {
+            System.out.print ("Initial array: ");
+            Utility.printArray (initialArray);
+        }
         if (part == 2)
         {
-            System.out.println ("Threads used: 4");
+            System.out.println ("Threads used: " + numThreads);
         }
-        else if(part == 3)
+        else if(part >= 3)
         {
             System.out.println ("Tasks used: " + numThreads);
         }
-        System.out.println ("Elapsed time: " + Utility.NUM_FORMAT.format (totalTime) + "ms");
+        if (part == 3 && virtualFallback)
+        {
+            System.out.println ("Executor: a fixed pool, since this JVM cannot create virtual threads");
+        }
+        else if (part == 3 && virtualThreads)
+        {
+            System.out.println ("Executor: a virtual thread per task");
+        }
+        if (part == 3 || part == 4)
+        {
+            System.out.println ("Task cutoff: " + (adaptiveCutoff ? "adaptive" : Utility.NUM_FORMAT.format (largestSize)));
+        }
+        System.out.println ("Elapsed time: " + Utility.NUM_FORMAT.format (totalTime / 1000000) + "ms");
+        // Output operation counts, if the JVM was started with -Dsortcomparisons.instrument=true
+        if (OperationCounter.ENABLED)
+        {
+            System.out.println (OperationCounter.report ());
+        }
         if (array.length <= 25)
         {
             System.out.print ("Sorted array: ");
             Utility.printArray (array);
         }
-        if (Utility.verifyArray (array, unsortedArray))
+        verifyAllocation.begin ();
+        boolean verified = verifier.verify (array, fingerprint);
+        verifyAllocation.end ();
+        verifier.shutdown ();
+        if (verified)
         {
             System.out.println ("Verified: array sorted properly");
         }
@@ -366,6 +1105,44 @@ public class Project6
         {
             System.out.println ("Unverified: array did not sort properly");
         }
+        // Output what the sort and the verification allocated, so allocation regressions show up beside the timing
+        if (sortAllocation.getAllocatedBytes () >= 0)
+        {
+            System.out.println ("Allocated: " + Utility.NUM_FORMAT.format (sortAllocation.getAllocatedBytes ()) + " bytes sorting, "
+                                + Utility.NUM_FORMAT.format (verifyAllocation.getAllocatedBytes ()) + " bytes verifying");
+        }
+        System.out.println ("Garbage collections: " + sortAllocation.getGcCount () + " (" + Utility.NUM_FORMAT.format (sortAllocation.getGcTimeMs ()) + "ms)");
+
+        // Record the timing for automated comparison, if requested
+        if (resultFile != null)
+        {
+            int threads = part == 1 ? 1 : numThreads;
+            String shape = distribution != null ? distribution.name () : (random ? "RANDOM" : "INDEX");
+            // Tag the virtual thread and fixed cutoff runs apart, so they are compared against the defaults rather than mixed with them,
+            // and tag the runs that asked for virtual threads but fell back on the fixed pool apart from both
+            String algorithm = "PROJECT6_PART" + part;
+            if (part == 3 && virtualFallback)
+            {
+                algorithm += "_VIRTUAL_FALLBACK";
+            }
+            else if (part == 3 && virtualThreads)
+            {
+                algorithm += "_VIRTUAL";
+            }
+            if ((part == 3 || part == 4) && !adaptiveCutoff)
+            {
+                algorithm += "_CUTOFF" + largestSize;
+            }
+            long[] times = {totalTime};
+            try
+            {
+                ResultWriter.appendCsv (resultFile, Collections.singletonList (BenchmarkResult.fromTimes (algorithm, size, shape, threads, times, 1, sortAllocation)));
+            }
+            catch (IOException ex)
+            {
+                System.out.println ("Could not write results to " + resultFile + ": " + ex.getMessage ());
+            }
+        }
         System.out.println ();
     }
 
@@ -375,25 +1152,37 @@ public class Project6
      * computations.
      *
      * @param args The command-line arguments.  "Usage: java Project6 <part> [OPTIONS]
-     * <part> - Valid parts are 1, 2, or 3
+     * <part> - Valid parts are 1, 2, 3, 4, 5 or 6
      *
      * Available options:
      * -s, --size    The size of the array to generate
      * -r, --random  True indicates a random array, false indicates a seeded array
      * -m, --max     Random numbers will generated between 0 (inclusive) and maxValue
-     * -n, --num     Must be specified if you are desiring to run Part 3, otherwise it is ignored.
+     * -n, --num     Must be specified if you are desiring to run Part 3, Part 4, Part 5 or Part 6. Part 2 uses four threads if it is not given, and Part 1 ignores it.
+     * -d, --dist    The distribution of the array to generate, such as ZIPF or ORGAN_PIPE, overriding -r
+     * -o, --out     A CSV file to append the timing to, for comparison with sortcomparisons.ResultComparator
+     * -x, --executor The executor for Part 3: fixed, a pool of numThreads threads, or virtual, a new virtual thread per task (Java 21 or later)
+     * -g, --grain   The largest partition a Part 3 or Part 4 task sorts by itself: adaptive, or a fixed size
+     * -seed         The seed to generate the array from, so that a run can be repeated with the same array
+     * -cache        A directory to keep generated arrays in, which must be given with -seed
      */
     public static void main(String[] args)
     {
         // Output string for common errors
         final String USAGE_TEXT = "Usage: java Project6 <part> [OPTIONS]\n"
-        + "<part> - Valid parts are 1, 2, or 3\n\n"
+        + "<part> - Valid parts are 1, 2, 3, 4, 5 or 6\n\n"
         + "Available options:\n"
         + "-s, --size      The size of the array to generate\n"
         + "-r, --random    True indicates a random array, false indicates a seeded array\n"
         + "-m, --max       Random numbers will generated between 0 (inclusive) and maxValue\n"
-        + "-n, --num       Must be specified if you are desiring to run Part 3, otherwise it is ignored.";
-        // The part of the problem to perform.  Value use be 1, 2, or 3
+        + "-n, --num       Must be specified if you are desiring to run Part 3, Part 4, Part 5 or Part 6. Part 2 uses four threads if it is not given, and Part 1 ignores it.\n"
+        + "-d, --dist      The distribution of the array to generate, such as ZIPF or ORGAN_PIPE, overriding -r\n"
+        + "-o, --out       A CSV file to append the timing to, for comparison with sortcomparisons.ResultComparator\n"
+        + "-x, --executor  The executor for Part 3: fixed, a pool of numThreads threads, or virtual, a new virtual thread per task (Java 21 or later)\n"
+        + "-g, --grain     The largest partition a Part 3 or Part 4 task sorts by itself: adaptive, or a fixed size\n"
+        + "-seed           The seed to generate the array from, so that a run can be repeated with the same array\n"
+        + "-cache          A directory to keep generated arrays in, which must be given with -seed";
+        // The part of the problem to perform.  Value use be 1, 2, 3, 4, 5 or 6
         int part = -1;
         // The size of the array to sort.*/
         int size = 10;
@@ -401,8 +1190,20 @@ public class Project6
         boolean random = false;
         // The maximum value a randomly generated number can be
         int maxValue = 10;
-        // The number of threads to use if performing Part 3
+        // The number of threads to use if performing Part 2 through Part 6
         int numThreads = -1;
+        // The distribution of the array to generate, or null to generate according to random
+        Distribution distribution = null;
+        // The CSV file to append the timing to, or null to only output it
+        String resultFile = null;
+        // True to run the Part 3 tasks on virtual threads rather than a fixed pool
+        boolean virtualThreads = false;
+        // The fixed largest partition a Part 3 or Part 4 task sorts by itself, or -1 to size tasks adaptively
+        int largestSize = -1;
+        // The seed to generate the array from, or null to use a new one
+        Long seed = null;
+        // The directory to keep generated arrays in, or null to always generate them
+        File cacheDir = null;
         
         // Parse through arguments and set their respective variables
         if (args.length > 0)
@@ -445,27 +1246,74 @@ public class Project6
                     {
                         numThreads = Integer.parseInt(args[i + 1]);
                     }
+                    else if (args[i].equals ("-d"))
+                    {
+                        distribution = Distribution.valueOf (args[i + 1].toUpperCase ());
+                    }
+                    else if (args[i].equals ("-o"))
+                    {
+                        resultFile = args[i + 1];
+                    }
+                    else if (args[i].equals ("-x"))
+                    {
+                        if (args[i + 1].equals ("virtual"))
+                        {
+                            virtualThreads = true;
+                        }
+                        else if (!args[i + 1].equals ("fixed"))
+                        {
+                            // Since the given executor was not valid at this point, just break the given part so the program terminates
+                            part = -1;
+                        }
+                    }
+                    else if (args[i].equals ("-g"))
+                    {
+                        if (!args[i + 1].equals ("adaptive"))
+                        {
+                            largestSize = Integer.parseInt (args[i + 1]);
+                            if (largestSize < 1)
+                            {
+                                // Since the given cutoff was not valid at this point, just break the given part so the program terminates
+                                part = -1;
+                            }
+                        }
+                    }
+                    else if (args[i].equals ("-seed"))
+                    {
+                        seed = Long.parseLong (args[i + 1]);
+                    }
+                    else if (args[i].equals ("-cache"))
+                    {
+                        cacheDir = new File (args[i + 1]);
+                    }
                 }
             }
-            catch (NumberFormatException ex)
+            catch (IllegalArgumentException ex)
             {
                 System.out.println (USAGE_TEXT);
                 System.exit (2);
             }
 
             // Make sure the given part number was valid
-            if (part > 3 || part < 1)
+            if (part > 6 || part < 1)
             {
                 System.out.println (USAGE_TEXT);
                 System.exit (3);
             }
 
-            // If we are doing Part 3 and the number of desired threads was not given, we cannot continue
-            if (part == 3 && numThreads == -1)
+            // If we are doing Part 3 through Part 6 and the number of desired threads was not given, we cannot continue
+            if (part >= 3 && numThreads == -1)
             {
                 System.out.println (USAGE_TEXT);
                 System.exit (4);
             }
+
+            // A cached array is only found again by its seed, so we cannot cache without one
+            if (cacheDir != null && seed == null)
+            {
+                System.out.println (USAGE_TEXT);
+                System.exit (5);
+            }
         }
         else
         {
@@ -473,8 +1321,20 @@ public class Project6
             System.exit (1);
         }
 
+        // Virtual threads are only in Java 21 and later, or a preview before that, so Part 3 falls back on the fixed pool without them
+        if (virtualThreads && part == 3 && !virtualThreadsSupported ())
+        {
+            System.out.println ("This JVM cannot create virtual threads, which need Java 21 or later, so Part 3 will use a fixed pool of "
+                                + numThreads + " threads, recorded as PROJECT6_PART3_VIRTUAL_FALLBACK.");
+        }
+
         // Get us out of static-land!
         Project6 proj6 = new Project6 (numThreads);
-        proj6.go (part, size, random, maxValue);
+        proj6.setVirtualThreads (virtualThreads);
+        if (largestSize != -1)
+        {
+            proj6.setLargestSize (largestSize);
+        }
+        proj6.go (part, size, random, maxValue, distribution, seed != null ? seed : System.nanoTime (), cacheDir, resultFile);
     }
 }
@@ -0,0 +1,67 @@
+package proj6;
+
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * A fork/join action that will sort a set portion of an array upon execution,
+ * forking further actions for the partitions it splits off.
+ *
+ * @author Alex Laird
+ * @author Ryan Morehart
+ */
+public class QuickSortAction extends RecursiveAction
+{
+    /** The version of the serialized form, which RecursiveAction, being Serializable, calls for.*/
+    private static final long serialVersionUID = 1L;
+
+    /** The back-reference to the class containing the sorting routine.*/
+    Project6 proj6;
+    /** The lowest index this action goes in the array.*/
+    int low;
+    /** The highest index this action goes in the array.*/
+    int high;
+    /** The array to be sorted.*/
+    int[] array;
+    /** The action forked before this one by the same task, which is joined after this one.*/
+    QuickSortAction next;
+
+    /**
+     * Construct a new action, giving it a class reference containing the sorting
+     * routine as well as the array to be sorted.
+     *
+     * @param proj6 Pass the reference to the class containing necessary sorting routine.
+     * @param low The lowest index this action goes in the array.
+     * @param high The highest index this action goes in the array.
+     * @param array The array to be sorted.
+     * @param next The action forked before this one by the same task, or null if there is none.
+     */
+    public QuickSortAction (Project6 proj6,
+                            int low,
+                            int high,
+                            int[] array,
+                            QuickSortAction next)
+    {
+        this.proj6 = proj6;
+        this.low = low;
+        this.high = high;
+        this.array = array;
+        this.next = next;
+    }
+
+    /**
+     * Performs the sort on the given array for the specified portions, forking
+     * and joining as it goes.
+     */
+    @Override
+    protected void compute()
+    {
+        try
+        {
+            proj6.part4 (low, high, array);
+        }
+        finally
+        {
+            proj6.getProgress ().taskFinished ();
+        }
+    }
+}
@@ -10,8 +10,6 @@ public class QuickSortTask implements Runnable
 {
     /** The back-reference to the class containing the sorting routine.*/
     Project6 proj6;
-    /** The ID of this task.*/
-    int id;
     /** The lowest index this task goes in the array.*/
     int low;
     /** The highest index this task goes in the array.*/
@@ -24,19 +22,16 @@ public class QuickSortTask implements Runnable
      * routine as well as the array to be sorted.
      *
      * @param proj6 Pass the reference to the class containing necessary sorting routine.
-     * @param id The ID of this task.
      * @param low The lowest index this task goes in the array.
      * @param high The highest index this task goes in the array.
      * @param array The array to be sorted.
      */
     public QuickSortTask (Project6 proj6,
-                          int id,
                           int low,
                           int high,
                           int[] array)
     {
         this.proj6 = proj6;
-        this.id = id;
         this.low = low;
         this.high = high;
         this.array = array;
@@ -49,6 +44,18 @@ public class QuickSortTask implements Runnable
     @Override
     public void run()
     {
-        proj6.part3 (low, high, array);
+        try
+        {
+            proj6.part3 (low, high, array);
+        }
+        catch (Throwable ex)
+        {
+            // Hand the failure to the master, which rethrows it once every task has finished
+            proj6.workerFailed (ex);
+        }
+        finally
+        {
+            proj6.taskFinished ();
+        }
     }
 }
@@ -1,7 +1,11 @@
 package proj6;
 
+import java.util.List;
+import sortcomparisons.AllocationMonitor;
+
 /**
- * A thread that will sort a set array upon execution.
+ * A thread that will sort a set of ranges of an array upon execution, one
+ * after another.
  *
  * @author Alex Laird
  * @author Ryan Morehart
@@ -12,10 +16,8 @@ public class QuickSortThread extends Thread
     Project6 proj6;
     /** The ID of this thread.*/
     int id;
-    /** The lowest index this thread goes in the array.*/
-    int low;
-    /** The highest index this thread goes in the array.*/
-    int high;
+    /** The ranges this thread sorts, each the lowest and highest index it goes in the array.*/
+    List<int[]> ranges;
     /** The array to be sorted.*/
     int[] array;
 
@@ -25,31 +27,48 @@ public class QuickSortThread extends Thread
      * 
      * @param proj6 Pass the reference to the class containing necessary sorting routine.
      * @param id The ID of this thread.
-     * @param low The lowest index this thread goes in the array.
-     * @param high The highest index this thread goes in the array.
+     * @param ranges The ranges this thread sorts, each the lowest and highest index it goes in the array.
      * @param array The array to be sorted.
      */
     public QuickSortThread (Project6 proj6,
                             int id,
-                            int low,
-                            int high,
+                            List<int[]> ranges,
                             int[] array)
     {
         this.proj6 = proj6;
         this.id = id;
-        this.low = low;
-        this.high = high;
+        this.ranges = ranges;
         this.array = array;
     }
 
     /**
      * Instantiates the thread and performs the sort on the given array for the
-     * specified portions.
+     * specified portions, giving up between them if the sort is cancelled.
      */
     @Override
     public void run()
     {
-        proj6.sort (array, low, high);
-        proj6.threadFinished (id);
+        Progress progress = proj6.getProgress ();
+        progress.taskStarted ();
+        try
+        {
+            for (int[] range : ranges)
+            {
+                proj6.checkCancelled ();
+                proj6.sort (array, range[0], range[1]);
+                progress.finalized (range[1] - range[0] + 1);
+            }
+        }
+        catch (Throwable ex)
+        {
+            // Hand the failure to the master, which rethrows it once it has joined us
+            proj6.workerFailed (ex);
+        }
+        finally
+        {
+            progress.taskFinished ();
+            // Report our allocation before the master can stop measuring
+            AllocationMonitor.threadFinished ();
+        }
     }
 }
@@ -0,0 +1,339 @@
+package proj6;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import sortcomparisons.AllocationMonitor;
+import sortcomparisons.OperationCounter;
+
+/**
+ * Sorts an array with a parallel sample sort, which splits it into one bucket
+ * per thread of nearly equal size, however the values are distributed:
+ * 1. Draw OVERSAMPLING random elements per thread, sort them, and take every
+ *    OVERSAMPLING-th one as a splitter, giving numThreads - 1 splitters.
+ * 2. Each thread classifies its slice of the array into buckets by binary
+ *    search over the splitters, counting the elements of each bucket.
+ * 3. The counts are prefix-summed by bucket and then by thread, so each
+ *    thread knows where in a buffer its elements of each bucket go, and the
+ *    threads scatter their slices into the buffer without any locking.
+ * 4. The buckets are copied back and QuickSorted concurrently, largest first.
+ *
+ * Elements equal to a splitter go into a bucket of their own, which is
+ * already sorted, so heavily repeated values cannot pile up in one bucket.
+ *
+ * @author Alex Laird
+ * @author Ryan Morehart
+ */
+public class SampleSort
+{
+    /** The number of sample elements drawn for each thread; more gives more even buckets for a larger sample.*/
+    public static final int OVERSAMPLING = 64;
+    /** Arrays with fewer elements than this per thread are sorted sequentially, since the phases would cost more than they save.*/
+    public static final int MIN_PER_THREAD = 1 << 12;
+
+    /** The back-reference to the class containing the sorting routine.*/
+    private final Project6 proj6;
+    /** The number of threads to sort with.*/
+    private final int numThreads;
+
+    /**
+     * Construct a sample sort, giving it a class reference containing the
+     * sorting routine and progress of the sort.
+     *
+     * @param proj6 Pass the reference to the class containing necessary sorting routine.
+     * @param numThreads The number of threads to sort with, which is also the number of buckets.
+     */
+    public SampleSort (Project6 proj6,
+                       int numThreads)
+    {
+        this.proj6 = proj6;
+        // Bucket numbers are stored as shorts, and there are two per splitter
+        this.numThreads = Math.min (numThreads, Short.MAX_VALUE / 2);
+    }
+
+    /**
+     * Choose numThreads - 1 splitters from a sorted random sample of the array.
+     *
+     * @param array The array to be sorted.
+     * @return The splitters, in ascending order.
+     */
+    private int[] chooseSplitters (int[] array)
+    {
+        ThreadLocalRandom random = ThreadLocalRandom.current ();
+        int[] sample = new int[numThreads * OVERSAMPLING];
+        for (int i = 0; i < sample.length; ++i)
+        {
+            sample[i] = array[random.nextInt (array.length)];
+        }
+        Arrays.sort (sample);
+
+        int[] splitters = new int[numThreads - 1];
+        for (int i = 0; i < splitters.length; ++i)
+        {
+            splitters[i] = sample[(i + 1) * OVERSAMPLING];
+        }
+        return splitters;
+    }
+
+    /**
+     * Find the bucket an element belongs in. Bucket 2i holds the elements
+     * between splitter i - 1 and splitter i, and bucket 2i + 1 holds the
+     * elements equal to splitter i, so the buckets are in ascending order.
+     *
+     * @param splitters The splitters, in ascending order.
+     * @param value The element.
+     * @return The bucket of the element.
+     */
+    private static int bucketOf (int[] splitters,
+                                 int value)
+    {
+        // Find the first splitter no less than the value
+        int low = 0;
+        int high = splitters.length;
+        while (low < high)
+        {
+            int mid = (low + high) >>> 1;
+            if (OperationCounter.compare (splitters[mid] < value))
+            {
+                low = mid + 1;
+            }
+            else
+            {
+                high = mid;
+            }
+        }
+
+        if (low < splitters.length && OperationCounter.compare (splitters[low] == value))
+        {
+            return 2 * low + 1;
+        }
+        return 2 * low;
+    }
+
+    /**
+     * Run the tasks on the pool and wait for all of them. A task that throws
+     * records its exception with the Project6 object and cancels the sort,
+     * which Project6 reports once the sort returns.
+     *
+     * @param pool The pool to run on.
+     * @param tasks The tasks to run.
+     */
+    private void runAll (ExecutorService pool,
+                         List<Runnable> tasks)
+    {
+        final Progress progress = proj6.getProgress ();
+        List<Callable<Void>> callables = new ArrayList<Callable<Void>> ();
+        for (final Runnable task : tasks)
+        {
+            progress.taskStarted ();
+            callables.add (new Callable<Void> ()
+            {
+                public Void call()
+                {
+                    try
+                    {
+                        proj6.checkCancelled ();
+                        task.run ();
+                    }
+                    catch (Throwable ex)
+                    {
+                        proj6.workerFailed (ex);
+                    }
+                    finally
+                    {
+                        progress.taskFinished ();
+                    }
+                    return null;
+                }
+            });
+        }
+
+        try
+        {
+            pool.invokeAll (callables);
+        }
+        catch (InterruptedException ex)
+        {
+            // Tasks that never got to start record nothing, so record the cancellation for them
+            proj6.workerFailed (new CancellationException ("The sort was cancelled."));
+            Thread.currentThread ().interrupt ();
+        }
+    }
+
+    /**
+     * Shut the pool down and wait for its threads to stop, so that nothing
+     * touches the array once the sort has returned, even if it was
+     * interrupted.
+     *
+     * @param pool The pool to shut down.
+     */
+    private static void shutdown (ExecutorService pool)
+    {
+        pool.shutdown ();
+        boolean interrupted = false;
+        while (true)
+        {
+            try
+            {
+                if (pool.awaitTermination (1, TimeUnit.SECONDS))
+                {
+                    break;
+                }
+            }
+            catch (InterruptedException ex)
+            {
+                interrupted = true;
+            }
+        }
+        if (interrupted)
+        {
+            Thread.currentThread ().interrupt ();
+        }
+    }
+
+    /**
+     * Sort the array. If the sort is cancelled or a worker fails, this
+     * returns early, leaving the array partly sorted, and the failure is left
+     * for Project6 to report.
+     *
+     * @param array The array to be sorted.
+     */
+    public void sort (final int[] array)
+    {
+        final Progress progress = proj6.getProgress ();
+        final int n = array.length;
+        if (numThreads <= 1 || n < numThreads * MIN_PER_THREAD)
+        {
+            proj6.sort (array, 0, n - 1);
+            progress.finalized (n);
+            return;
+        }
+
+        final int[] splitters = chooseSplitters (array);
+        final int numBuckets = 2 * splitters.length + 1;
+        // The bucket of each element, and each thread's count, then offset, into each bucket
+        final short[] buckets = new short[n];
+        final int[][] offsets = new int[numThreads][numBuckets];
+        final int[] buffer = new int[n];
+        final int[] bucketStart = new int[numBuckets + 1];
+
+        ExecutorService pool = Executors.newFixedThreadPool (numThreads, AllocationMonitor.threadFactory ());
+        try
+        {
+            // Classify each thread's slice of the array, counting each bucket
+            List<Runnable> tasks = new ArrayList<Runnable> ();
+            for (int t = 0; t < numThreads; ++t)
+            {
+                final int[] counts = offsets[t];
+                final int from = (int) ((long) n * t / numThreads);
+                final int to = (int) ((long) n * (t + 1) / numThreads);
+                tasks.add (new Runnable ()
+                {
+                    public void run()
+                    {
+                        for (int i = from; i < to; ++i)
+                        {
+                            int bucket = bucketOf (splitters, array[i]);
+                            buckets[i] = (short) bucket;
+                            ++counts[bucket];
+                        }
+                    }
+                });
+            }
+            runAll (pool, tasks);
+            if (proj6.isCancelled ())
+            {
+                return;
+            }
+
+            // Turn the counts into offsets: bucket by bucket, and within a bucket thread by thread
+            int next = 0;
+            for (int b = 0; b < numBuckets; ++b)
+            {
+                bucketStart[b] = next;
+                for (int t = 0; t < numThreads; ++t)
+                {
+                    int count = offsets[t][b];
+                    offsets[t][b] = next;
+                    next += count;
+                }
+            }
+            bucketStart[numBuckets] = n;
+
+            // Scatter each thread's slice into its place in the buffer
+            tasks.clear ();
+            for (int t = 0; t < numThreads; ++t)
+            {
+                final int[] offset = offsets[t];
+                final int from = (int) ((long) n * t / numThreads);
+                final int to = (int) ((long) n * (t + 1) / numThreads);
+                tasks.add (new Runnable ()
+                {
+                    public void run()
+                    {
+                        for (int i = from; i < to; ++i)
+                        {
+                            buffer[offset[buckets[i]]++] = array[i];
+                        }
+                        OperationCounter.move (to - from);
+                    }
+                });
+            }
+            runAll (pool, tasks);
+            if (proj6.isCancelled ())
+            {
+                return;
+            }
+
+            // Copy each bucket back and sort it, largest first so that no thread is left with a big one at the end
+            Integer[] order = new Integer[numBuckets];
+            for (int b = 0; b < numBuckets; ++b)
+            {
+                order[b] = b;
+            }
+            Arrays.sort (order, new Comparator<Integer> ()
+            {
+                public int compare(Integer first, Integer second)
+                {
+                    return Integer.compare (bucketStart[second + 1] - bucketStart[second], bucketStart[first + 1] - bucketStart[first]);
+                }
+            });
+            tasks.clear ();
+            for (final int b : order)
+            {
+                final int low = bucketStart[b];
+                final int high = bucketStart[b + 1] - 1;
+                if (high < low)
+                {
+                    continue;
+                }
+                tasks.add (new Runnable ()
+                {
+                    public void run()
+                    {
+                        System.arraycopy (buffer, low, array, low, high - low + 1);
+                        OperationCounter.move (high - low + 1);
+                        // A bucket of elements equal to a splitter is already sorted
+                        if (b % 2 == 0)
+                        {
+                            proj6.sort (array, low, high);
+                        }
+                        progress.finalized (high - low + 1);
+                    }
+                });
+            }
+            runAll (pool, tasks);
+        }
+        finally
+        {
+            shutdown (pool);
+        }
+    }
+}
@@ -1,9 +1,18 @@
 package proj6;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.text.DecimalFormat;
 import java.text.NumberFormat;
-import java.util.Arrays;
-import java.util.Random;
+import sortcomparisons.ArrayGenerator;
+import sortcomparisons.Distribution;
 
 /**
  * This class contains common, simple helper functions that are globally
@@ -16,6 +25,8 @@ public class Utility
 {
     /** The number formatter for pretty output.*/
     public static final NumberFormat NUM_FORMAT = new DecimalFormat ("###,###");
+    /** The number of elements read from or written to a cached array file at a time.*/
+    private static final int CACHE_CHUNK = 1 << 20;
     
     /**
      * Builds an array of given size with random values (if random is true) between
@@ -31,47 +42,141 @@ public class Utility
                                     boolean random,
                                     final int MAX_VALUE)
     {
-        int[] array = new int[size];
-        Random randomizer = new Random ();
+        return buildArray (size, random, MAX_VALUE, System.nanoTime ());
+    }
+
+    /**
+     * Builds an array as the other buildArray does, but with random values
+     * drawn from the given seed, so the same seed always builds the same
+     * array. Random values are generated across all available processors.
+     *
+     * @param size The size to build the array.
+     * @param random True if values should be random, false if values should be seeded.
+     * @param MAX_VALUE The maximum value of a randomly generated number.
+     * @param seed The seed for the generator.
+     * @return The newly built array.
+     */
+    public static int[] buildArray (int size,
+                                    boolean random,
+                                    final int MAX_VALUE,
+                                    long seed)
+    {
+        // If random, set values between 0 (inclusive) and MAX_VALUE
+        if (random)
+        {
+            return buildArray (size, Distribution.RANDOM, MAX_VALUE, seed);
+        }
 
-        // Loop through and set all array values
+        // Not random, so set each value to the index of the array
+        int[] array = new int[size];
         for (int i = 0; i < size; ++i)
         {
-            // If random, set value between 0 (inclusive) and MAX_VALUE
-            if (random)
-            {
-                array[i] = randomizer.nextInt(MAX_VALUE);
-            }
-            // Not random, so set value to the index of the array
-            else
+            array[i] = i;
+        }
+
+        return array;
+    }
+
+    /**
+     * Builds an array of given size and distribution using the shared
+     * generator library from SortComparisons. Generation is split across all
+     * available processors, and the same seed always builds the same array.
+     *
+     * @param size The size to build the array.
+     * @param distribution The shape of the data.
+     * @param MAX_VALUE The maximum value of a generated number.
+     * @param seed The seed for the generator.
+     * @return The newly built array.
+     */
+    public static int[] buildArray (int size,
+                                    Distribution distribution,
+                                    final int MAX_VALUE,
+                                    long seed)
+    {
+        ArrayGenerator generator = new ArrayGenerator (seed, Runtime.getRuntime ().availableProcessors ());
+        return generator.generate (distribution, size, MAX_VALUE);
+    }
+
+    /**
+     * Reads an array written by writeArray, memory-mapping the file rather
+     * than copying it through a stream.
+     *
+     * @param file The file to read.
+     * @param size The size the array should be.
+     * @return The array, or null if the file does not exist or holds an array of another size.
+     * @throws IOException If the file could not be read.
+     */
+    public static int[] readArray (File file,
+                                   int size) throws IOException
+    {
+        if (!file.isFile () || file.length () != (long) size * 4)
+        {
+            return null;
+        }
+
+        int[] array = new int[size];
+        FileChannel channel = FileChannel.open (file.toPath (), StandardOpenOption.READ);
+        try
+        {
+            // Map a chunk at a time, since one mapping cannot exceed 2GB
+            for (int from = 0; from < size; from += CACHE_CHUNK)
             {
-                array[i] = i;
+                int length = Math.min (CACHE_CHUNK, size - from);
+                IntBuffer buffer = channel.map (FileChannel.MapMode.READ_ONLY, (long) from * 4, (long) length * 4).order (ByteOrder.nativeOrder ()).asIntBuffer ();
+                buffer.get (array, from, length);
             }
         }
+        finally
+        {
+            channel.close ();
+        }
 
         return array;
     }
 
     /**
-     * Verify that the two arrays are equal by sorting the unsorted array, using
-     * verified Java sorting libraries, and comparing the two arrays.
+     * Writes an array to a file for readArray. The array is written to a
+     * temporary file that is then moved into place, so another run reading
+     * the file at the same time never sees it half written.
      *
-     * @param sortedArray The sorted array.
-     * @param unsortedArray The unsorted array to be sorted and compared to the sorted array.
-     * @return True if the arrays are equal after sorting using Java sorting libraries, false if there was an inconsistency.
+     * @param file The file to write.
+     * @param array The array to write.
+     * @throws IOException If the file could not be written.
      */
-    public static boolean verifyArray(int[] sortedArray,
-                                      int[] unsortedArray)
+    public static void writeArray (File file,
+                                   int[] array) throws IOException
     {
-        Arrays.sort (unsortedArray);
-        for (int i = 0; i < sortedArray.length ;++i)
+        File directory = file.getAbsoluteFile ().getParentFile ();
+        directory.mkdirs ();
+        File temp = File.createTempFile (file.getName (), ".tmp", directory);
+        try
         {
-            if (sortedArray[i] != unsortedArray[i])
+            FileChannel channel = FileChannel.open (temp.toPath (), StandardOpenOption.WRITE);
+            try
+            {
+                ByteBuffer buffer = ByteBuffer.allocateDirect (CACHE_CHUNK * 4).order (ByteOrder.nativeOrder ());
+                for (int from = 0; from < array.length; from += CACHE_CHUNK)
+                {
+                    int length = Math.min (CACHE_CHUNK, array.length - from);
+                    buffer.clear ();
+                    buffer.asIntBuffer ().put (array, from, length);
+                    buffer.limit (length * 4);
+                    while (buffer.hasRemaining ())
+                    {
+                        channel.write (buffer);
+                    }
+                }
+            }
+            finally
             {
-                return false;
+                channel.close ();
             }
+            Files.move (temp.toPath (), file.toPath (), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        finally
+        {
+            temp.delete ();
         }
-        return true;
     }
 
     /**
@@ -1,39 +1,107 @@
 #!/bin/bash
-# Ensure we're testing the latest build
-javac -d classes src/proj6/*.java
+# Ensure we're testing the latest build, along with the shared sortcomparisons sources it uses and the
+# comparator for the regression check, which proj6 does not reference so -sourcepath alone would skip it
+sortSrc="../../../Fall Semester 2009/Algorithms/Sort Comparisons/SortComparisons/src"
+javac -d classes -sourcepath "src:$sortSrc" src/proj6/*.java "$sortSrc/sortcomparisons/ResultComparator.java"
 cd classes
 
 outputFile=../test.out
+resultFile=../test.csv
 maxValue=1000
 random=true
 size=25
+# Every benchmark run sorts the same arrays, generated once and then read back from the cache
+seed=20101
+cacheDir=../cache
+# Every benchmark case is run this many times, each in a new JVM, so the regression check has samples to test
+trials=5
+
+# Run one benchmark case trials times, recording each run in the result file
+bench()
+{
+	for trial in $(seq $trials)
+	do
+		java proj6/Project6 "$@" -seed $seed -cache $cacheDir -o $resultFile >> $outputFile
+	done
+}
 
 echo ::Show correctness of algorithms:: > $outputFile
 java proj6/Project6 1 -m $maxValue -r $random -s $size >> $outputFile
-java proj6/Project6 2 -m $maxValue -r $random -s $size >> $outputFile
-for procCount in 1 2 3 4
+for part in 2 3 4 5 6
+do
+	for procCount in 1 2 3 4
+	do
+		java proj6/Project6 $part -m $maxValue -r $random -s $size -n $procCount >> $outputFile
+	done
+done
+
+echo >> $outputFile
+
+echo ::Show correctness on other distributions:: >> $outputFile
+for distribution in SORTED REVERSED ORGAN_PIPE SAWTOOTH ZIPF FEW_UNIQUE ANTI_QUICKSORT
 do
-	java proj6/Project6 3 -m $maxValue -r $random -s $size -n $procCount >> $outputFile
+	java proj6/Project6 2 -m $maxValue -d $distribution -s $size -n 4 >> $outputFile
+	java proj6/Project6 3 -m $maxValue -d $distribution -s $size -n 4 >> $outputFile
+	java proj6/Project6 4 -m $maxValue -d $distribution -s $size -n 4 >> $outputFile
+	java proj6/Project6 5 -m $maxValue -d $distribution -s $size -n 4 >> $outputFile
+	java proj6/Project6 6 -m $maxValue -d $distribution -s $size -n 4 >> $outputFile
 done
 
 echo >> $outputFile
 
 echo ::Run benchmark tests:: >> $outputFile
-for part in 1 2
+rm -f $resultFile
+for size in 100 1000 5000 10000 50000 100000 500000 1000000
 do
-	for size in 100 1000 5000 10000 50000 100000 500000 1000000
+	bench 1 -m $maxValue -r $random -s $size
+done
+echo >> $outputFile
+for part in 2 3 4 5 6
+do
+	for size in 100 1000 5000 10000 50000 100000 500000 1000000 5000000 10000000
 	do
-		java proj6/Project6 $part -m $maxValue -r $random -s $size >> $outputFile
+		for procCount in 1 2 3 4
+		do
+			bench $part -m $maxValue -r $random -s $size -n $procCount
+		done
 	done
-
 	echo >> $outputFile
 done
-for size in 100 1000 5000 10000 50000 100000 500000 1000000 5000000 10000000
+
+# Compare Part 3 on a virtual thread per task against the fixed pool above, but only on a JVM that can create
+# virtual threads (Java 21 or later), since otherwise the runs would only repeat the fixed pool
+if java proj6/Project6 3 -s 1 -n 1 -x virtual | grep -q "cannot create virtual threads"
+then
+	echo ::Skip Part 3 on virtual threads, which this JVM cannot create:: >> $outputFile
+else
+	echo ::Run Part 3 on virtual threads:: >> $outputFile
+	for size in 100 1000 5000 10000 50000 100000 500000 1000000 5000000 10000000
+	do
+		for procCount in 1 2 3 4
+		do
+			bench 3 -m $maxValue -r $random -s $size -n $procCount -x virtual
+		done
+	done
+fi
+echo >> $outputFile
+
+# Compare the adaptive task cutoff against the fixed cutoff of 1000 over a wide range of threads
+echo ::Run Part 3 and Part 4 with adaptive and fixed task cutoffs:: >> $outputFile
+for part in 3 4
 do
-	for procCount in 1 2 3 4
+	for size in 1000000 10000000
 	do
-		java proj6/Project6 3 -m $maxValue -r $random -s $size -n $procCount >> $outputFile
+		for procCount in 1 2 4 8 16 32 64
+		do
+			bench $part -m $maxValue -r $random -s $size -n $procCount -g adaptive
+			bench $part -m $maxValue -r $random -s $size -n $procCount -g 1000
+		done
 	done
+	echo >> $outputFile
 done
-echo >> $outputFile
 
+# Compare against a saved baseline, if there is one, to catch regressions
+if [ -f ../baseline.csv ]
+then
+	java -cp . sortcomparisons.ResultComparator ../baseline.csv $resultFile
+fi